@@ -0,0 +1,56 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.benchmarks;
+
+import java.io.IOException;
+
+import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.ProtocolEncoder;
+
+/**
+ * DiscardingBot class
+ * 
+ * A bot that throws away every line written to it, without keeping a dump,
+ * so only the encoding of the lines is measured.
+ */
+public class DiscardingBot extends IOPlayer {
+	
+	private long bytesWritten;
+	
+	public DiscardingBot(String idString) {
+		super(idString);
+		this.bytesWritten = 0;
+	}
+	
+	@Override
+	public void writeToBot(ProtocolEncoder line) throws IOException {
+		this.bytesWritten += line.getLength();
+	}
+	
+	@Override
+	protected void stopBot() {
+		// there is no process
+	}
+	
+	/**
+	 * @return : total length of all lines written to this bot
+	 */
+	public long getBytesWritten() {
+		return this.bytesWritten;
+	}
+}
@@ -0,0 +1,105 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.game.RandomStream;
+
+/**
+ * FieldBenchmark class
+ * 
+ * Round end processing, garbage lines and the field strings that are sent
+ * to the bots every round.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldBenchmark {
+	
+	private Field field;
+	private Field garbageField;
+	private int changedCell;
+	
+	@Setup
+	public void setup() {
+		this.field = new Field(10, 20, new RandomStream(42));
+		this.field.addGarbageLines(6, true);
+		this.garbageField = new Field(10, 20, new RandomStream(42));
+		this.changedCell = 0;
+	}
+	
+	@Benchmark
+	public int processEndOfRoundNoFullRows() {
+		return this.field.processEndOfRoundField();
+	}
+	
+	@Benchmark
+	public int processEndOfRoundTwoFullRows() {
+		
+		// fill the two rows above the garbage, so they are removed again
+		for(int x = 0; x < this.field.getWidth(); x++) {
+			this.field.setBlock(x, 12, ShapeType.I);
+			this.field.setBlock(x, 13, ShapeType.O);
+		}
+		return this.field.processEndOfRoundField();
+	}
+	
+	@Benchmark
+	public boolean addGarbageLines() {
+		return this.garbageField.addGarbageLines(2, true);
+	}
+	
+	@Benchmark
+	public String toStringUnchanged() {
+		return this.field.toString(false, false);
+	}
+	
+	@Benchmark
+	public String toStringAfterChange() {
+		
+		// toggle one cell, so one row has to be rendered again
+		int x = this.changedCell++ % this.field.getWidth();
+		if(this.field.isBlocked(x, 0))
+			this.field.setEmpty(x, 0);
+		else
+			this.field.setBlock(x, 0, ShapeType.S);
+		return this.field.toString(false, false);
+	}
+	
+	@Benchmark
+	public String toStringForVisualizer() {
+		return this.field.toString(false, true);
+	}
+}
@@ -0,0 +1,88 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.theaigames.blockbattle.RoundPhase;
+import com.theaigames.engine.metrics.LatencyHistogram;
+import com.theaigames.engine.metrics.PhaseTimes;
+import com.theaigames.game.RandomStream;
+
+/**
+ * HistogramBenchmark class
+ * 
+ * Recording timings in the histograms that stay on while games are played,
+ * which shouldn't allocate anything.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+	
+	private LatencyHistogram histogram;
+	private PhaseTimes<RoundPhase> phaseTimes;
+	private long[] values;
+	private int next;
+	
+	@Setup
+	public void setup() {
+		this.histogram = new LatencyHistogram();
+		this.phaseTimes = new PhaseTimes<RoundPhase>(RoundPhase.class);
+		
+		// spread over microseconds to seconds, like bot responses
+		RandomStream random = new RandomStream(42);
+		this.values = new long[1024];
+		for(int i = 0; i < this.values.length; i++) {
+			this.values[i] = 1000L << random.nextInt(21);
+			this.histogram.record(this.values[i]);
+		}
+	}
+	
+	@Benchmark
+	public long record() {
+		long value = this.values[this.next++ & (this.values.length - 1)];
+		this.histogram.record(value);
+		return value;
+	}
+	
+	@Benchmark
+	public long recordPhase() {
+		return this.phaseTimes.recordSince(RoundPhase.MOVES, System.nanoTime());
+	}
+	
+	@Benchmark
+	public long valueAtPercentile() {
+		return this.histogram.getValueAtPercentile(99);
+	}
+}
@@ -0,0 +1,121 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.theaigames.blockbattle.GameRandom;
+import com.theaigames.blockbattle.Processor;
+import com.theaigames.blockbattle.ScriptedBot;
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.player.Player;
+
+/**
+ * ProcessorBenchmark class
+ * 
+ * Plays whole games with two scripted in-memory bots, so every part of a
+ * round is measured: updates, move requests, moves, round end, points and
+ * garbage. The seed is fixed, so every game is the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessorBenchmark {
+	
+	private static final int MAX_ROUNDS = 1000;
+	private static final int FIELD_WIDTH = 10;
+	private static final int FIELD_HEIGHT = 20;
+	
+	// spreads the pieces over the field, so rows get cleared and garbage is sent
+	private static final String[] SPREAD = { "left,left,left,left,drop", "turnright,left,left,drop", "drop",
+			"right,right,drop", "turnleft,right,right,right,right,drop", "left,left,down,down,drop",
+			"turnright,right,right,right,drop", "right,right,right,right,right,drop", "turnright,drop" };
+	
+	// makes every move one at a time
+	private static final String[] STEP_BY_STEP = { "left,down,left,down,left,down,turnright,down,down,down,down,down,down,down,down,down,down,down,down,down,down,drop",
+			"right,down,right,down,right,down,turnleft,down,down,down,down,down,down,down,down,down,down,down,down,down,down,drop" };
+	
+	@Param({ "spread", "step_by_step" })
+	public String script;
+	
+	private PrintStream stdout;
+	
+	@Setup
+	public void setup() {
+		
+		// the processor logs every round
+		this.stdout = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {}
+			@Override
+			public void write(byte[] b, int off, int len) {}
+		}));
+	}
+	
+	@TearDown
+	public void tearDown() {
+		System.setOut(this.stdout);
+	}
+	
+	@Benchmark
+	public int playGame() {
+		String[] moves = this.script.equals("spread") ? SPREAD : STEP_BY_STEP;
+		GameRandom random = new GameRandom(42, 2);
+		
+		ArrayList<Player> players = new ArrayList<Player>();
+		for(int i = 0; i < 2; i++) {
+			Field field = new Field(FIELD_WIDTH, FIELD_HEIGHT, random.getGarbageRandom(i));
+			ScriptedBot bot = new ScriptedBot(i + "", rotate(moves, i));
+			players.add(new Player("player" + (i + 1), bot, 10000, 500, field));
+		}
+		Processor processor = new Processor(players, FIELD_WIDTH, FIELD_HEIGHT, random.getShapeRandom());
+		
+		int round = 0;
+		while(!processor.isGameOver() && round < MAX_ROUNDS)
+			processor.playRound(++round);
+		return round;
+	}
+	
+	// gives the second player a different order of the same moves
+	private static String[] rotate(String[] moves, int amount) {
+		String[] rotated = new String[moves.length];
+		for(int i = 0; i < moves.length; i++)
+			rotated[i] = moves[(i + amount) % moves.length];
+		return rotated;
+	}
+}
@@ -0,0 +1,98 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.moves.MoveTokenizer;
+import com.theaigames.blockbattle.player.Player;
+import com.theaigames.game.RandomStream;
+
+/**
+ * ProtocolBenchmark class
+ * 
+ * Reading the moves a bot returns and encoding the updates it is sent.
+ * The moves are read by MoveTokenizer, which replaced Processor.parseMoves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+	
+	private static final String MAX_MOVES = "left,left,turnright,down,down,right,right,right,turnleft,down,"
+			+ "down,down,left,left,turnleft,turnleft,right,down,down,down,"
+			+ "left,right,left,right,turnright,turnright,down,down,down,down,"
+			+ "right,left,right,left,turnleft,down,down,down,down,down,drop";
+	private static final String FEW_MOVES = "left,left,turnright,drop";
+	
+	private MoveTokenizer tokenizer;
+	private DiscardingBot bot;
+	private Player player;
+	private Field field;
+	
+	@Setup
+	public void setup() {
+		this.tokenizer = new MoveTokenizer(40);
+		this.bot = new DiscardingBot("0");
+		this.field = new Field(10, 20, new RandomStream(42));
+		this.field.addGarbageLines(4, true);
+		this.player = new Player("player1", this.bot, 10000, 500, this.field);
+	}
+	
+	@Benchmark
+	public int tokenizeMaxMoves() {
+		return this.tokenizer.tokenize(MAX_MOVES, this.bot);
+	}
+	
+	@Benchmark
+	public int tokenizeFewMoves() {
+		return this.tokenizer.tokenize(FEW_MOVES, this.bot);
+	}
+	
+	@Benchmark
+	public long sendRoundUpdates() {
+		
+		// the updates one player gets every round
+		this.player.sendUpdate("round", 27);
+		this.player.sendUpdate("this_piece_type", "T");
+		this.player.sendUpdate("next_piece_type", "L");
+		this.player.sendUpdate("this_piece_position", "4,-1");
+		for(int i = 0; i < 2; i++) {
+			this.player.sendUpdate("row_points", this.player, 12);
+			this.player.sendUpdate("combo", this.player, 1);
+			this.player.sendUpdate("skips", this.player, 0);
+			this.player.sendUpdate("field", this.player, this.field.toString(false, false));
+		}
+		return this.bot.getBytesWritten();
+	}
+}
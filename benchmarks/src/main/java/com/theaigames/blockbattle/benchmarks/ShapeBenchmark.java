@@ -0,0 +1,88 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.theaigames.blockbattle.field.Shape;
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.game.RandomStream;
+
+/**
+ * ShapeBenchmark class
+ * 
+ * Moves, rotations and drops of one piece on a field with some garbage
+ * lines. Every benchmark leaves the field as it found it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeBenchmark {
+	
+	private Field field;
+	
+	@Setup
+	public void setup() {
+		this.field = new Field(10, 20, new RandomStream(42));
+		this.field.addGarbageLines(6, true);
+	}
+	
+	@Benchmark
+	public int moveAndRotate() {
+		Shape shape = new Shape(ShapeType.T, this.field);
+		shape.spawnShape();
+		shape.turnRight();
+		shape.oneLeft();
+		shape.oneLeft();
+		shape.oneLeft();
+		shape.turnLeft();
+		shape.oneRight();
+		shape.oneDown();
+		shape.oneDown();
+		this.field.cleanField();
+		return shape.getLocation().x + shape.getRotation();
+	}
+	
+	@Benchmark
+	public int drop() {
+		Shape shape = new Shape(ShapeType.L, this.field);
+		shape.spawnShape();
+		shape.turnLeft();
+		shape.drop();
+		
+		// take the frozen blocks out again
+		for(int i = 0; i < Shape.BLOCKS; i++)
+			this.field.setEmpty(shape.getBlockX(i), shape.getBlockY(i));
+		return shape.getLocation().y;
+	}
+}
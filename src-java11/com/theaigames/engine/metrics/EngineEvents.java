@@ -0,0 +1,268 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.engine.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * EngineEvents class
+ * 
+ * The Java 11 version of EngineEvents, in the multi-release jar. Emits the
+ * events below when a Flight Recorder recording has them enabled. They are
+ * disabled by default, so they need to be enabled in the recording's
+ * settings, see the README.
+ * 
+ * Whether an event type is enabled is checked on an instance that is never
+ * committed, so nothing is allocated while it is disabled.
+ */
+public final class EngineEvents {
+	
+	private static final RoundEvent ROUND = new RoundEvent();
+	private static final PhaseEvent PHASE = new PhaseEvent();
+	private static final MovesEvent MOVES = new MovesEvent();
+	private static final BotWriteEvent BOT_WRITE = new BotWriteEvent();
+	private static final BotResponseEvent BOT_RESPONSE = new BotResponseEvent();
+	private static final LineClearEvent LINE_CLEAR = new LineClearEvent();
+	
+	private EngineEvents() {}
+	
+	public static Object beginRound() {
+		if(!ROUND.isEnabled())
+			return null;
+		RoundEvent event = new RoundEvent();
+		event.begin();
+		return event;
+	}
+	
+	public static void endRound(Object event, int round) {
+		if(event == null)
+			return;
+		RoundEvent roundEvent = (RoundEvent) event;
+		roundEvent.end();
+		if(roundEvent.shouldCommit()) {
+			roundEvent.round = round;
+			roundEvent.commit();
+		}
+	}
+	
+	public static Object beginPhase() {
+		if(!PHASE.isEnabled())
+			return null;
+		PhaseEvent event = new PhaseEvent();
+		event.begin();
+		return event;
+	}
+	
+	public static void endPhase(Object event, Enum<?> phase, int round) {
+		if(event == null)
+			return;
+		PhaseEvent phaseEvent = (PhaseEvent) event;
+		phaseEvent.end();
+		if(phaseEvent.shouldCommit()) {
+			phaseEvent.phase = phase.toString().toLowerCase();
+			phaseEvent.round = round;
+			phaseEvent.commit();
+		}
+	}
+	
+	public static Object beginMoves() {
+		if(!MOVES.isEnabled())
+			return null;
+		MovesEvent event = new MovesEvent();
+		event.begin();
+		return event;
+	}
+	
+	public static void endMoves(Object event, String player, int round, int moves, int illegalMoves) {
+		if(event == null)
+			return;
+		MovesEvent movesEvent = (MovesEvent) event;
+		movesEvent.end();
+		if(movesEvent.shouldCommit()) {
+			movesEvent.player = player;
+			movesEvent.round = round;
+			movesEvent.moves = moves;
+			movesEvent.illegalMoves = illegalMoves;
+			movesEvent.commit();
+		}
+	}
+	
+	public static Object beginBotWrite() {
+		if(!BOT_WRITE.isEnabled())
+			return null;
+		BotWriteEvent event = new BotWriteEvent();
+		event.begin();
+		return event;
+	}
+	
+	public static void endBotWrite(Object event, String bot, int bytes) {
+		if(event == null)
+			return;
+		BotWriteEvent writeEvent = (BotWriteEvent) event;
+		writeEvent.end();
+		if(writeEvent.shouldCommit()) {
+			writeEvent.bot = bot;
+			writeEvent.bytes = bytes;
+			writeEvent.commit();
+		}
+	}
+	
+	public static Object beginBotResponse() {
+		if(!BOT_RESPONSE.isEnabled())
+			return null;
+		BotResponseEvent event = new BotResponseEvent();
+		event.begin();
+		return event;
+	}
+	
+	public static void endBotResponse(Object event, String bot, long requestTime, String response) {
+		if(event == null)
+			return;
+		BotResponseEvent responseEvent = (BotResponseEvent) event;
+		responseEvent.end();
+		if(responseEvent.shouldCommit()) {
+			responseEvent.bot = bot;
+			responseEvent.responseTime = System.nanoTime() - requestTime;
+			responseEvent.length = (response == null) ? 0 : response.length();
+			responseEvent.timedOut = (response == null);
+			responseEvent.commit();
+		}
+	}
+	
+	public static Object beginLineClear() {
+		if(!LINE_CLEAR.isEnabled())
+			return null;
+		LineClearEvent event = new LineClearEvent();
+		event.begin();
+		return event;
+	}
+	
+	public static void endLineClear(Object event, int rows) {
+		if(event == null)
+			return;
+		LineClearEvent lineClearEvent = (LineClearEvent) event;
+		lineClearEvent.end();
+		if(lineClearEvent.shouldCommit()) {
+			lineClearEvent.rows = rows;
+			lineClearEvent.commit();
+		}
+	}
+	
+	@Name("com.theaigames.Round")
+	@Label("Round")
+	@Description("One round of a game, from Engine.start")
+	@Category({ "Block Battle", "Engine" })
+	@Enabled(false)
+	@StackTrace(false)
+	static class RoundEvent extends Event {
+		@Label("Round")
+		int round;
+	}
+	
+	@Name("com.theaigames.RoundPhase")
+	@Label("Round Phase")
+	@Description("One phase of a round, from Processor.playRound")
+	@Category({ "Block Battle", "Engine" })
+	@Enabled(false)
+	@StackTrace(false)
+	static class PhaseEvent extends Event {
+		@Label("Phase")
+		String phase;
+		
+		@Label("Round")
+		int round;
+	}
+	
+	@Name("com.theaigames.Moves")
+	@Label("Moves")
+	@Description("Executing the moves of one player in a round")
+	@Category({ "Block Battle", "Engine" })
+	@Enabled(false)
+	@StackTrace(false)
+	static class MovesEvent extends Event {
+		@Label("Player")
+		String player;
+		
+		@Label("Round")
+		int round;
+		
+		@Label("Moves")
+		int moves;
+		
+		@Label("Illegal Moves")
+		int illegalMoves;
+	}
+	
+	@Name("com.theaigames.BotWrite")
+	@Label("Bot Write")
+	@Description("Writing one line to a bot")
+	@Category({ "Block Battle", "Bot IO" })
+	@Enabled(false)
+	@StackTrace(false)
+	static class BotWriteEvent extends Event {
+		@Label("Bot")
+		String bot;
+		
+		@Label("Bytes")
+		@DataAmount
+		int bytes;
+	}
+	
+	@Name("com.theaigames.BotResponse")
+	@Label("Bot Response")
+	@Description("Waiting for the response of a bot")
+	@Category({ "Block Battle", "Bot IO" })
+	@Enabled(false)
+	@StackTrace(false)
+	static class BotResponseEvent extends Event {
+		@Label("Bot")
+		String bot;
+		
+		@Label("Response Time")
+		@Description("Time from the move request until the engine had the response")
+		@Timespan(Timespan.NANOSECONDS)
+		long responseTime;
+		
+		@Label("Length")
+		@Description("Characters in the response")
+		int length;
+		
+		@Label("Timed Out")
+		boolean timedOut;
+	}
+	
+	@Name("com.theaigames.LineClear")
+	@Label("Line Clear")
+	@Description("Removing the full rows of a player's field at the end of a round")
+	@Category({ "Block Battle", "Engine" })
+	@Enabled(false)
+	@StackTrace(false)
+	static class LineClearEvent extends Event {
+		@Label("Rows Cleared")
+		int rows;
+	}
+}
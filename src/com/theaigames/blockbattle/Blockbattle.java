@@ -17,13 +17,21 @@
 
 package com.theaigames.blockbattle;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.theaigames.blockbattle.field.Field;
 import com.theaigames.blockbattle.player.Player;
+import com.theaigames.blockbattle.replay.ReplayWriter;
+import com.theaigames.engine.io.BotIOMultiplexer;
 import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.metrics.PhaseTimes;
 import com.theaigames.game.AbstractGame;
+import com.theaigames.game.management.EngineMetrics;
 import com.theaigames.game.player.AbstractPlayer;
 
 public class Blockbattle extends AbstractGame {
@@ -34,6 +42,10 @@ public class Blockbattle extends AbstractGame {
 	private final int FIELD_HEIGHT = 20;
 	
 	private List<Player> players;
+	
+	public String REPLAY_FILE; // binary replay of the game is streamed to this file if set
+	public boolean CONCURRENT_MOVES = false; // ask all bots for their moves at the same time
+	public Long SEED; // seed for the pieces and garbage holes, a random seed is used if not set
 
 	@Override
 	public void setupGame(ArrayList<IOPlayer> ioPlayers) throws Exception {
@@ -43,12 +55,17 @@ public class Blockbattle extends AbstractGame {
 		// set the maximum number of rounds if necessary
 		super.maxRounds = -1;
 		
+		// all randomness of the game comes from this seed
+		long seed = (SEED != null) ? SEED : GameRandom.newSeed();
+		GameRandom random = new GameRandom(seed, ioPlayers.size());
+		System.out.println("Seed: " + seed);
+		
 		// create all the players and everything they need
 		this.players = new ArrayList<Player>();
 		for(int i=0; i<ioPlayers.size(); i++) {
 			
 			// create the playing field
-			Field field = new Field(FIELD_WIDTH, FIELD_HEIGHT);
+			Field field = new Field(FIELD_WIDTH, FIELD_HEIGHT, random.getGarbageRandom(i));
 			
 			// create the player
 			String playerName = String.format("player%d", i+1);
@@ -57,11 +74,28 @@ public class Blockbattle extends AbstractGame {
 		}
 		
 		// send the settings
-		for(AbstractPlayer player : this.players)
+		for(AbstractPlayer player : this.players) {
+			player.startBatch();
 			sendSettings(player);
+			player.flushBatch();
+		}
 		
 		// create the processor
-		super.processor = new Processor(this.players, FIELD_WIDTH, FIELD_HEIGHT);
+		Processor processor = new Processor(this.players, FIELD_WIDTH, FIELD_HEIGHT, random.getShapeRandom());
+		processor.setConcurrentMoveRequests(CONCURRENT_MOVES);
+		super.processor = processor;
+		
+		// start streaming the replay
+		if(REPLAY_FILE != null && !REPLAY_FILE.isEmpty()) {
+			ReplayWriter replayWriter = new ReplayWriter(new FileOutputStream(REPLAY_FILE));
+			try {
+				replayWriter.writeHeader(seed, FIELD_WIDTH, FIELD_HEIGHT, TIMEBANK_MAX, TIME_PER_MOVE, this.players);
+			} catch(IOException e) {
+				replayWriter.close();
+				throw e;
+			}
+			processor.setReplayWriter(replayWriter);
+		}
 	}
 
 	@Override
@@ -85,6 +119,35 @@ public class Blockbattle extends AbstractGame {
 		player.sendSetting("field_height", FIELD_HEIGHT);
 	}
 
+	@Override
+	public List<Player> getPlayers() {
+		return (this.players == null) ? Collections.<Player>emptyList() : this.players;
+	}
+	
+	@Override
+	protected void closeOutput() {
+		if(super.processor != null)
+			((Processor) super.processor).closeReplay();
+	}
+	
+	@Override
+	public PhaseTimes<RoundPhase> getPhaseTimes() {
+		return (super.processor == null) ? null : ((Processor) super.processor).getPhaseTimes();
+	}
+	
+	/**
+	 * Writes the response times of the bots and the time every phase of the
+	 * rounds took
+	 * @param out : stream to write to
+	 */
+	public void printTimings(PrintStream out) {
+		for(IOPlayer ioPlayer : super.engine.getPlayers()) {
+			out.println(String.format("bot %s response: %s", ioPlayer.getIdString(), ioPlayer.getResponseLatency()));
+			out.println(String.format("bot %s first byte: %s", ioPlayer.getIdString(), ioPlayer.getFirstByteLatency()));
+		}
+		out.print(getPhaseTimes());
+	}
+	
 	@Override
 	protected void runEngine() throws Exception {
 		super.engine.setLogic(this);
@@ -98,11 +161,24 @@ public class Blockbattle extends AbstractGame {
 		Blockbattle game = new Blockbattle();
 		
 		// DEV_MODE settings
-		game.TEST_BOT = "java -cp /home/jim/workspace/jimBotTetris/bin/ bot.BotStarter";
+		game.TEST_BOT = "java-class:com.theaigames.blockbattle.bot.ReferenceBot";
 		game.NUM_TEST_BOTS = 2;
 		game.DEV_MODE = false;
 		
+		// replay settings
+		game.REPLAY_FILE = System.getProperty("replay");
+		game.CONCURRENT_MOVES = Boolean.getBoolean("concurrent_moves");
+		game.SEED = Long.getLong("seed");
+		if(Boolean.getBoolean("multiplexed_io"))
+			game.IO_MULTIPLEXER = BotIOMultiplexer.getShared();
+		if(Boolean.getBoolean("jmx"))
+			game.METRICS = EngineMetrics.getShared();
+		
 		game.setupEngine(args);
 		game.runEngine();
+		if(Boolean.getBoolean("timings"))
+			game.printTimings(System.err);
+		
+		System.exit(0);
 	}
 }
@@ -0,0 +1,135 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.theaigames.engine.io.BotIOMultiplexer;
+import com.theaigames.engine.io.BotProcessPool;
+import com.theaigames.engine.metrics.LatencyHistogram;
+import com.theaigames.game.AbstractGame;
+import com.theaigames.game.management.EngineMetrics;
+import com.theaigames.game.tournament.GameFactory;
+import com.theaigames.game.tournament.Match;
+import com.theaigames.game.tournament.Standing;
+import com.theaigames.game.tournament.Tournament;
+import com.theaigames.game.tournament.TournamentListener;
+
+/**
+ * BlockbattleTournament class
+ * 
+ * Plays a Block Battle tournament between the bots given as arguments in
+ * this JVM. The progress and standings are written to stderr, the games
+ * write their usual output to stdout.
+ */
+public class BlockbattleTournament implements GameFactory, TournamentListener {
+	
+	private boolean concurrentMoves;
+	private BotIOMultiplexer multiplexer;
+	private BotProcessPool processPool;
+	private EngineMetrics metrics;
+	
+	public BlockbattleTournament(boolean concurrentMoves, BotIOMultiplexer multiplexer, BotProcessPool processPool,
+			EngineMetrics metrics) {
+		this.concurrentMoves = concurrentMoves;
+		this.multiplexer = multiplexer;
+		this.processPool = processPool;
+		this.metrics = metrics;
+	}
+	
+	@Override
+	public AbstractGame createGame(long seed) {
+		Blockbattle game = new Blockbattle();
+		game.SEED = seed;
+		game.CONCURRENT_MOVES = this.concurrentMoves;
+		game.IO_MULTIPLEXER = this.multiplexer;
+		game.PROCESS_POOL = this.processPool;
+		game.METRICS = this.metrics;
+		return game;
+	}
+	
+	@Override
+	public void onMatchFinished(Match match, int finished, int scheduled) {
+		String outcome;
+		if(match.getError() != null)
+			outcome = "failed: " + match.getError();
+		else if(match.getWinner() == null)
+			outcome = "draw";
+		else
+			outcome = "won by " + match.getWinner().getBotCommand();
+		
+		Standing[] sides = match.getSides();
+		System.err.println(String.format("match %d/%d, round %d, seed %d: %s vs %s, %s",
+				finished, scheduled, match.getRound(), match.getSeed(),
+				sides[0].getBotCommand(), sides[1].getBotCommand(), outcome));
+	}
+	
+	@Override
+	public void onRoundFinished(int round, List<Standing> standings) {
+		System.err.println(String.format("standings after round %d:", round));
+		for(int i = 0; i < standings.size(); i++) {
+			Standing standing = standings.get(i);
+			LatencyHistogram responseLatency = standing.getResponseLatency();
+			System.err.println(String.format("%3d. %5.1f points  %d-%d-%d  response p50 %.1fms p99 %.1fms  %s", i + 1,
+					standing.getPoints(), standing.getWins(), standing.getDraws(), standing.getLosses(),
+					responseLatency.getValueAtPercentile(50) / 1e6, responseLatency.getValueAtPercentile(99) / 1e6,
+					standing.getBotCommand()));
+		}
+	}
+	
+	public static void main(String args[]) throws Exception {
+		List<String> botCommands = Arrays.asList(args);
+		
+		// tournament settings
+		String format = System.getProperty("format", "round_robin");
+		int threads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+		int rounds = Integer.getInteger("rounds", Tournament.getDefaultSwissRounds(botCommands.size()));
+		int games = Integer.getInteger("games", 1);
+		Long seed = Long.getLong("seed");
+		
+		BotIOMultiplexer multiplexer = Boolean.getBoolean("multiplexed_io") ? BotIOMultiplexer.getShared() : null;
+		
+		// keep the bot processes running between games, as many per bot as games are played at once
+		BotProcessPool processPool = Boolean.getBoolean("process_pool") ? new BotProcessPool(multiplexer, threads) : null;
+		
+		BlockbattleTournament blockbattle = new BlockbattleTournament(Boolean.getBoolean("concurrent_moves"),
+				multiplexer, processPool, Boolean.getBoolean("jmx") ? EngineMetrics.getShared() : null);
+		
+		Tournament tournament = new Tournament(blockbattle, botCommands, threads);
+		tournament.setListener(blockbattle);
+		tournament.setGamesPerPairing(games);
+		if(seed != null)
+			tournament.setSeed(seed);
+		
+		try {
+			if(format.equals("swiss"))
+				tournament.playSwiss(rounds);
+			else if(format.equals("round_robin"))
+				tournament.playRoundRobin();
+			else
+				throw new IllegalArgumentException("Unknown tournament format: " + format);
+		} finally {
+			tournament.shutdown();
+			if(processPool != null)
+				processPool.shutdown();
+		}
+		
+		System.exit(0);
+	}
+}
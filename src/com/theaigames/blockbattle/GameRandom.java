@@ -0,0 +1,78 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle;
+
+import com.theaigames.game.RandomStream;
+
+/**
+ * GameRandom class
+ * 
+ * All randomness of one game, derived from a single seed. The pieces and
+ * the garbage holes of every player each get their own generator, so
+ * games never share or wait for a generator, and a game played again
+ * with the same seed gets the same pieces and holes.
+ */
+public class GameRandom {
+	
+	private long seed;
+	private RandomStream shapeRandom;
+	private RandomStream[] garbageRandoms;
+	
+	/**
+	 * @param seed : seed of the game
+	 * @param players : number of players in the game
+	 */
+	public GameRandom(long seed, int players) {
+		RandomStream random = new RandomStream(seed);
+		
+		this.seed = seed;
+		this.shapeRandom = random.split();
+		this.garbageRandoms = new RandomStream[players];
+		for(int i = 0; i < players; i++)
+			this.garbageRandoms[i] = random.split();
+	}
+	
+	/**
+	 * @return : a new random seed
+	 */
+	public static long newSeed() {
+		return new RandomStream().nextLong();
+	}
+	
+	/**
+	 * @return : the seed of the game
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+	
+	/**
+	 * @return : generator for the order of the pieces
+	 */
+	public RandomStream getShapeRandom() {
+		return this.shapeRandom;
+	}
+	
+	/**
+	 * @param player : index of the player
+	 * @return : generator for the holes in the garbage lines of given player's field
+	 */
+	public RandomStream getGarbageRandom(int player) {
+		return this.garbageRandoms[player];
+	}
+}
@@ -0,0 +1,92 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle;
+
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.player.Player;
+import com.theaigames.game.RandomStream;
+
+/**
+ * GameState class
+ * 
+ * Immutable snapshot of a whole game at the end of a round: every
+ * player's field, piece and counters, the next piece and the state of
+ * the piece generator. Made by Processor.snapshot() and put back with
+ * Processor.restore(), so many different moves can be tried from the
+ * same position without playing the game again from the start.
+ * Fields that didn't change since their last snapshot are shared.
+ */
+public final class GameState {
+	
+	private final int round;
+	private final boolean gameOver;
+	private final int winner; // index of the winning player, -1 if there is none
+	private final ShapeType nextShape;
+	private final RandomStream shapeRandom;
+	private final Player.Snapshot[] players;
+	
+	GameState(int round, boolean gameOver, int winner, ShapeType nextShape, RandomStream shapeRandom, Player.Snapshot[] players) {
+		this.round = round;
+		this.gameOver = gameOver;
+		this.winner = winner;
+		this.nextShape = nextShape;
+		this.shapeRandom = shapeRandom;
+		this.players = players;
+	}
+	
+	/**
+	 * @return : the last round that was played
+	 */
+	public int getRound() {
+		return this.round;
+	}
+	
+	public boolean isGameOver() {
+		return this.gameOver;
+	}
+	
+	/**
+	 * @return : index of the winning player, -1 if there is no winner (yet)
+	 */
+	public int getWinner() {
+		return this.winner;
+	}
+	
+	/**
+	 * @return : the piece of the next round
+	 */
+	public ShapeType getNextShape() {
+		return this.nextShape;
+	}
+	
+	/**
+	 * @param index : index of the player
+	 * @return : state of given player
+	 */
+	public Player.Snapshot getPlayer(int index) {
+		return this.players[index];
+	}
+	
+	public int getPlayerCount() {
+		return this.players.length;
+	}
+	
+	RandomStream getShapeRandom() {
+		return this.shapeRandom;
+	}
+}
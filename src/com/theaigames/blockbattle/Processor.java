@@ -17,16 +17,20 @@
 
 package com.theaigames.blockbattle;
 
-import java.awt.Point;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.theaigames.blockbattle.field.Shape;
 import com.theaigames.blockbattle.field.ShapeType;
-import com.theaigames.blockbattle.moves.Move;
+import com.theaigames.blockbattle.moves.MoveTokenizer;
 import com.theaigames.blockbattle.moves.MoveType;
 import com.theaigames.blockbattle.player.Player;
+import com.theaigames.blockbattle.replay.ReplayWriter;
+import com.theaigames.engine.metrics.EngineEvents;
+import com.theaigames.engine.metrics.PhaseTimes;
 import com.theaigames.game.GameHandler;
+import com.theaigames.game.RandomStream;
 import com.theaigames.game.player.AbstractPlayer;
 
 public class Processor implements GameHandler {
@@ -36,35 +40,51 @@ public class Processor implements GameHandler {
 	private AbstractPlayer winner;
 	private boolean gameOver;
 	private ShapeType nextShape;
+	private RandomStream shapeRandom;
 	private int fieldWidth;
 	private int fieldHeight;
+	private ReplayWriter replayWriter;
+	private int replayedRounds;
+	private boolean concurrentMoveRequests;
+	private PhaseTimes<RoundPhase> phaseTimes;
+	private boolean simulating; // playing a what-if round, those aren't timed and emit no events
 	
 	private final int MAX_MOVES = 40;
 	private final int ROUNDS_PER_SOLID = 15;
 	
 	// points
 	private final int POINTS_PER_GARBAGE = 3;
-	private final int SINGLE_CLEAR_SCORE = 0;
-	private final int DOUBLE_CLEAR_SCORE = 3;
-	private final int TRIPLE_CLEAR_SCORE = 6;
-	private final int QUAD_CLEAR_SCORE = 10;
-	private final int SINGLE_T_SCORE = 5;
-	private final int DOUBLE_T_SCORE = 10;
-	private final int PERFECT_CLEAR_SCORE = 18;
+	public static final int SINGLE_CLEAR_SCORE = 0;
+	public static final int DOUBLE_CLEAR_SCORE = 3;
+	public static final int TRIPLE_CLEAR_SCORE = 6;
+	public static final int QUAD_CLEAR_SCORE = 10;
+	public static final int SINGLE_T_SCORE = 5;
+	public static final int DOUBLE_T_SCORE = 10;
+	public static final int PERFECT_CLEAR_SCORE = 18;
 	
-	public Processor(List<Player> players, int fieldWidth, int fieldHeight) {
+	/**
+	 * @param shapeRandom : the game's generator for the order of the pieces
+	 */
+	public Processor(List<Player> players, int fieldWidth, int fieldHeight, RandomStream shapeRandom) {
 		this.players = (ArrayList<Player>) players;
+		this.shapeRandom = shapeRandom;
 		this.roundNumber = 0;
 		this.winner = null;
 		this.fieldWidth = fieldWidth;
 		this.fieldHeight = fieldHeight;
+		this.replayWriter = null;
+		this.replayedRounds = 0;
+		this.concurrentMoveRequests = false;
+		this.phaseTimes = new PhaseTimes<RoundPhase>(RoundPhase.class);
+		this.simulating = false;
 		
 		setNextShape();
 		
 		// store game start and set opponent for player
 		for(Player player : this.players) {
-			storePlayerState(player, null);
+			storePlayerState(player, null, "");
 			player.setOpponent(this.players);
+			player.setRoundMoves(new MoveTokenizer(MAX_MOVES));
 		}
 	}
 
@@ -73,6 +93,128 @@ public class Processor implements GameHandler {
 		
 		System.out.println("playing round " + roundNumber);
 		
+		if(!startRound(roundNumber)) { // game could be over after spawning of shape
+			long time = System.nanoTime();
+			Object event = EngineEvents.beginPhase();
+			writeReplay();
+			EngineEvents.endPhase(event, RoundPhase.SERIALIZATION, roundNumber);
+			this.phaseTimes.recordSince(RoundPhase.SERIALIZATION, time);
+			return;
+		}
+		
+		// send updates and ask for moves, the updates are timed separately
+		long serializationTime = 0;
+		long time = System.nanoTime();
+		Object ioEvent = EngineEvents.beginPhase();
+		if(this.concurrentMoveRequests) {
+			
+			// all players think at the same time, each with their own time bank
+			for(Player player : this.players) {
+				player.startBatch();
+				serializationTime += sendRoundUpdates(player);
+				player.sendMoveRequest("moves");
+			}
+			for(Player player : this.players) {
+				player.getRoundMoves().tokenize(player.getMoveResponse(), player.getBot());
+			}
+		} else {
+			for(Player player : this.players) {
+				player.startBatch();
+				serializationTime += sendRoundUpdates(player);
+				
+				player.getRoundMoves().tokenize(player.requestMove("moves"), player.getBot());
+			}
+		}
+		EngineEvents.endPhase(ioEvent, RoundPhase.IO, roundNumber);
+		this.phaseTimes.record(RoundPhase.IO, System.nanoTime() - time - serializationTime);
+		
+		finishRound();
+		
+		time = System.nanoTime();
+		Object event = EngineEvents.beginPhase();
+		writeReplay();
+		EngineEvents.endPhase(event, RoundPhase.SERIALIZATION, roundNumber);
+		this.phaseTimes.record(RoundPhase.SERIALIZATION, System.nanoTime() - time + serializationTime);
+	}
+	
+	/**
+	 * Sends the round updates to given player as a serialization phase
+	 * @return : the time it took in nanoseconds
+	 */
+	private long sendRoundUpdates(Player player) {
+		long time = System.nanoTime();
+		Object event = EngineEvents.beginPhase();
+		sendRoundUpdatesToPlayer(player);
+		EngineEvents.endPhase(event, RoundPhase.SERIALIZATION, this.roundNumber);
+		return System.nanoTime() - time;
+	}
+	
+	/**
+	 * Plays the round after given state with given moves instead of asking
+	 * the bots, and returns the state after that round. The processor is
+	 * left in the returned state. Don't use this while writing a replay.
+	 * The round is not counted in the phase times.
+	 * @param state : state to play the round from
+	 * @param moves : the moves of each player, like a bot would return them
+	 * @return : the state at the end of the round
+	 */
+	public GameState playRound(GameState state, String... moves) {
+		restore(state);
+		
+		this.simulating = true;
+		try {
+			if(!isGameOver() && startRound(state.getRound() + 1)) {
+				for(int i = 0; i < this.players.size(); i++) {
+					Player player = this.players.get(i);
+					player.getRoundMoves().tokenize((i < moves.length) ? moves[i] : "", player.getBot());
+				}
+				finishRound();
+			}
+		} finally {
+			this.simulating = false;
+		}
+		
+		return snapshot();
+	}
+	
+	/**
+	 * @return : snapshot of the game at this moment
+	 */
+	public GameState snapshot() {
+		Player.Snapshot[] playerSnapshots = new Player.Snapshot[this.players.size()];
+		for(int i = 0; i < playerSnapshots.length; i++)
+			playerSnapshots[i] = this.players.get(i).snapshot();
+		
+		return new GameState(this.roundNumber, this.gameOver, this.players.indexOf(this.winner), this.nextShape,
+				this.shapeRandom.copy(), playerSnapshots);
+	}
+	
+	/**
+	 * Sets the game back to given snapshot of this game, the stored states
+	 * of later rounds are removed. Don't use this while writing a replay.
+	 * @param state : snapshot taken from this processor
+	 */
+	public void restore(GameState state) {
+		this.roundNumber = state.getRound();
+		this.gameOver = state.isGameOver();
+		this.winner = (state.getWinner() < 0) ? null : this.players.get(state.getWinner());
+		this.nextShape = state.getNextShape();
+		this.shapeRandom.setState(state.getShapeRandom());
+		
+		for(int i = 0; i < this.players.size(); i++) {
+			Player player = this.players.get(i);
+			player.restore(state.getPlayer(i));
+			player.removePlayerStatesAfter(state.getRound());
+		}
+	}
+	
+	/**
+	 * Spawns the pieces of given round
+	 * @return : false if the game is over
+	 */
+	private boolean startRound(int roundNumber) {
+		long time = System.nanoTime();
+		Object event = beginPhase();
 		this.roundNumber = roundNumber;
 		ShapeType nextShape = this.nextShape;
 		
@@ -91,30 +233,37 @@ public class Processor implements GameHandler {
 			player.setCurrentShape(shape);
 			
 			//first store start of round state
-			storePlayerState(player, null);
+			storePlayerState(player, null, "");
 		}
 		
-		if(this.gameOver) // game could be over after spawning of shape
-			return;
+		endPhase(event, RoundPhase.SPAWN, time);
+		return !this.gameOver;
+	}
+	
+	/**
+	 * Executes the moves of all players and handles the end of the round
+	 */
+	private void finishRound() {
 		
-		// send updates and ask for moves
-		for(Player player : this.players) {
-			sendRoundUpdatesToPlayer(player);
-			
-			ArrayList<Move> moves = parseMoves(player.requestMove("moves"), player);
-			player.setRoundMoves(moves);
-		}
+		long time = System.nanoTime();
+		Object event = beginPhase();
 		
 		// execute all moves
 		for(Player player : this.players) {
 			executeMovesForPlayer(player);
 		}
+		time = endPhase(event, RoundPhase.MOVES, time);
+		event = beginPhase();
 		
 		// remove rows and store the amount removed
 		for(Player player : this.players) {
+			Object lineClearEvent = this.simulating ? null : EngineEvents.beginLineClear();
 			player.setRowsRemoved(player.getField().processEndOfRoundField());
+			EngineEvents.endLineClear(lineClearEvent, player.getRowsRemoved());
 			player.setFieldCleared(player.getField().isFieldCleared());
 		}
+		time = endPhase(event, RoundPhase.LINE_CLEARING, time);
+		event = beginPhase();
 		
 		// handle everything that changes after the pieces have been placed
 		for(Player player : this.players) {
@@ -125,6 +274,28 @@ public class Processor implements GameHandler {
 				if(player.getField().addSolidRows(1)) // set winner if player is out of bounds
 					setWinner(player.getOpponent());
 		}
+		endPhase(event, RoundPhase.SCORING, time);
+	}
+	
+	/**
+	 * @return : event for a phase of this round, null for what-if rounds
+	 */
+	private Object beginPhase() {
+		return this.simulating ? null : EngineEvents.beginPhase();
+	}
+	
+	/**
+	 * Ends the event of a phase of this round and counts its time, unless
+	 * this is a what-if round
+	 * @param startTime : System.nanoTime() at the start of the phase
+	 * @return : System.nanoTime() now, the start of the next phase
+	 */
+	private long endPhase(Object event, RoundPhase phase, long startTime) {
+		if(this.simulating)
+			return System.nanoTime();
+		
+		EngineEvents.endPhase(event, phase, this.roundNumber);
+		return this.phaseTimes.recordSince(phase, startTime);
 	}
 
 	@Override
@@ -148,11 +319,90 @@ public class Processor implements GameHandler {
 		return "";
 	}
 
+	/**
+	 * Sends the updates and move requests to all players before waiting for
+	 * any response, instead of asking the players one after the other.
+	 * Moves are still executed in player order.
+	 */
+	public void setConcurrentMoveRequests(boolean concurrentMoveRequests) {
+		this.concurrentMoveRequests = concurrentMoveRequests;
+	}
+	
+	/**
+	 * The phases of what-if rounds, played with playRound(GameState, String...),
+	 * are not timed. The times are kept for JMX and the match result, they are
+	 * only printed with -Dtimings=true and the phase events are only recorded
+	 * when they are enabled in Flight Recorder.
+	 * @return : the time every phase of the rounds played so far took
+	 */
+	public PhaseTimes<RoundPhase> getPhaseTimes() {
+		return this.phaseTimes;
+	}
+	
+	/**
+	 * Streams the game to given replay writer from now on. The states of
+	 * rounds that are written are no longer kept in the players' played game.
+	 * The writer is closed when the game is over or by closeReplay().
+	 * @param replayWriter : writer that already has its header written
+	 */
+	public void setReplayWriter(ReplayWriter replayWriter) {
+		this.replayWriter = replayWriter;
+	}
+	
+	/**
+	 * Writes all rounds up to the current one to the replay
+	 */
+	private void writeReplay() {
+		if(this.replayWriter == null)
+			return;
+		
+		try {
+			for(; this.replayedRounds <= this.roundNumber; this.replayedRounds++) {
+				this.replayWriter.writeRound(this.replayedRounds, this.players);
+				for(Player player : this.players)
+					player.getPlayedGame().remove(this.replayedRounds);
+			}
+			
+			if(isGameOver()) {
+				this.replayWriter.writeEnd(this.players.indexOf(this.winner));
+				this.replayWriter.close();
+				this.replayWriter = null;
+			}
+		} catch(IOException e) {
+			System.err.println("Writing replay failed: " + e.getMessage());
+			closeReplayQuietly();
+		}
+	}
+	
+	/**
+	 * Ends the replay with the winner so far and closes it, for games that
+	 * are stopped before they are over. Does nothing if the replay is
+	 * already closed.
+	 */
+	public void closeReplay() {
+		if(this.replayWriter == null)
+			return;
+		
+		try {
+			this.replayWriter.writeEnd(this.players.indexOf(this.winner));
+		} catch(IOException e) {
+			System.err.println("Writing replay failed: " + e.getMessage());
+		}
+		closeReplayQuietly();
+	}
+	
+	private void closeReplayQuietly() {
+		try {
+			this.replayWriter.close();
+		} catch(IOException e) {}
+		this.replayWriter = null;
+	}
+	
 	/**
 	 * Sets the next shape to be played randomly
 	 */
 	private void setNextShape() {
-		this.nextShape = ShapeType.getRandom();
+		this.nextShape = ShapeType.getRandom(this.shapeRandom);
 	}
 	
 	/**
@@ -181,70 +431,46 @@ public class Processor implements GameHandler {
 		player.sendUpdate("skips", opponent, opponent.getSkips());
 	}
 	
-	private ArrayList<Move> parseMoves(String input, Player player) {
-		ArrayList<Move> moves = new ArrayList<Move>();
-		String[] parts = input.split(",");
-		
-		for(int i=0; i < parts.length; i++) {
-			if(i > MAX_MOVES) {
-				player.getBot().outputEngineWarning(String.format("Maximum number of moves reached, only the first %s will be executed.", MAX_MOVES));
-				break;
-			}
-			if(parts[i].isEmpty())
-				break;
-			
-			Move move = parseMove(parts[i], player);
-			if(move != null)
-				moves.add(move);
-		}
-		
-		return moves;
-	}
-	
-	private Move parseMove(String input, Player player) {
-		MoveType moveType = MoveType.fromString(input);
-		
-		if(moveType == null) {
-			player.getBot().outputEngineWarning(String.format("Cannot parse input: %s", input));
-			return null;
-		}
-
-		return new Move(player, moveType);
-	}
-	
 	private void executeMovesForPlayer(Player player) {
+		Object event = this.simulating ? null : EngineEvents.beginMoves();
+		int illegalMoves = 0;
 		Shape shape = player.getCurrentShape();
-		Move lastMove1 = null;
-		Move lastMove2 = null;
-		Point lastLocation = new Point(-1, -1);
+		MoveTokenizer moves = player.getRoundMoves();
+		MoveType lastMove1 = null;
+		MoveType lastMove2 = null;
+		int lastX = -1;
+		int lastY = -1;
 		player.setUsedSkip(false);
 		
-		for(Move move : player.getRoundMoves()) {
+		for(int i = 0; i < moves.getCount(); i++) {
+			MoveType move = moves.getMoveType(i);
+			String illegalMove = "";
 			
-			lastLocation = new Point(shape.getLocation().x, shape.getLocation().y);
+			lastX = shape.getLocation().x;
+			lastY = shape.getLocation().y;
 			
 			if(shape.isFrozen()) {
 				player.getBot().outputEngineWarning("Piece was frozen in place on the previous move. Skipping all next moves.");
 				break;
 			}
-			switch(move.getType()) {
+			switch(move) {
 				case LEFT:
-					move.setIllegalMove(shape.oneLeft());
+					illegalMove = shape.oneLeft();
 					break;
 				case RIGHT:
-					move.setIllegalMove(shape.oneRight());
+					illegalMove = shape.oneRight();
 					break;
 				case TURNLEFT:
-					move.setIllegalMove(shape.turnLeft());
+					illegalMove = shape.turnLeft();
 					break;
 				case TURNRIGHT:
-					move.setIllegalMove(shape.turnRight());
+					illegalMove = shape.turnRight();
 					break;
 				case DOWN:
-					move.setIllegalMove(shape.oneDown());
+					illegalMove = shape.oneDown();
 					break;
 				case DROP:
-					move.setIllegalMove(shape.drop());
+					illegalMove = shape.drop();
 					break;
 				case SKIP:
 					if (player.getSkips() > 0) {
@@ -256,12 +482,14 @@ public class Processor implements GameHandler {
 			}
 			
 			// add a moveResult to the player's playedGame
-			storePlayerState(player, move);
+			storePlayerState(player, move, illegalMove);
+			if(!illegalMove.isEmpty())
+				illegalMoves++;
 			
 			lastMove2 = lastMove1;
 			lastMove1 = move;
 			
-			if (move.getType() == MoveType.SKIP)
+			if (move == MoveType.SKIP)
 				break;
 		}
 		
@@ -273,24 +501,24 @@ public class Processor implements GameHandler {
 			
 			if(initialY != finalY) {
 				String error = "The piece is still loose in the field. Dropping it.";
-				if (lastMove1 != null && lastMove1.getType() == MoveType.SKIP)
+				if (lastMove1 == MoveType.SKIP)
 					error = "Can't perform 'skip'. There were no skips available.";
-				Move move = new Move(player, MoveType.DROP);
-				move.setIllegalMove(error);
 				
-				storePlayerState(player, move);
+				storePlayerState(player, MoveType.DROP, error);
 				player.getBot().outputEngineWarning(error);
 				player.setTSpin(false);
 			} else {
-				player.setTSpin(shape.checkTSpin(lastMove1, lastMove2, lastLocation));
+				player.setTSpin(shape.checkTSpin(lastMove1, lastMove2, lastX, lastY));
 			}
 		} else {
-			player.setTSpin(shape.checkTSpin(lastMove1, lastMove2, lastLocation));
+			player.setTSpin(shape.checkTSpin(lastMove1, lastMove2, lastX, lastY));
 		}
 		
 		if(shape.isOverflowing()) {
 			setWinner(player.getOpponent());
 		}
+		
+		EngineEvents.endMoves(event, player.getName(), this.roundNumber, moves.getCount(), illegalMoves);
 	}
 	
 	private void processPointsForPlayer(Player player) {
@@ -303,11 +531,11 @@ public class Processor implements GameHandler {
 		if(player.getTSpin()) { // T-spin clears
 			switch(rowsRemoved) {
 				case 2:
-					rowPoints = this.DOUBLE_T_SCORE;
+					rowPoints = DOUBLE_T_SCORE;
 					player.setSkips(player.getSkips() + 1);
 					break;
 				case 1:
-					rowPoints = this.SINGLE_T_SCORE;
+					rowPoints = SINGLE_T_SCORE;
 					break;
 				default:
 					rowPoints = 0;
@@ -317,17 +545,17 @@ public class Processor implements GameHandler {
 		else {
 			switch(rowsRemoved) { // Normal clears
 				case 4:
-					rowPoints = this.QUAD_CLEAR_SCORE;
+					rowPoints = QUAD_CLEAR_SCORE;
 					player.setSkips(player.getSkips() + 1);
 					break;
 				case 3:
-					rowPoints = this.TRIPLE_CLEAR_SCORE;
+					rowPoints = TRIPLE_CLEAR_SCORE;
 					break;
 				case 2:
-					rowPoints = this.DOUBLE_CLEAR_SCORE;
+					rowPoints = DOUBLE_CLEAR_SCORE;
 					break;
 				case 1:
-					rowPoints = this.SINGLE_CLEAR_SCORE;
+					rowPoints = SINGLE_CLEAR_SCORE;
 					break;
 				default:
 					rowPoints = 0;
@@ -347,7 +575,7 @@ public class Processor implements GameHandler {
 			
 		// check if the whole field is cleared and reward points
 		if(player.getFieldCleared())
-			rowPoints = this.PERFECT_CLEAR_SCORE;
+			rowPoints = PERFECT_CLEAR_SCORE;
 		
 		player.addRowPoints(rowPoints);
 		
@@ -368,8 +596,8 @@ public class Processor implements GameHandler {
 	}
 	
 	// stores everything needed in a state for the visualizer for given player
-	private void storePlayerState(Player player, Move move) {
-		player.addPlayerState(this.roundNumber, move, this.nextShape);
+	private void storePlayerState(Player player, MoveType moveType, String illegalMove) {
+		player.addPlayerState(this.roundNumber, moveType, illegalMove, this.nextShape);
 	}
 	
 	// if there was a winner already, set winner to null, so we know it's a draw
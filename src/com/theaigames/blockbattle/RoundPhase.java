@@ -0,0 +1,33 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle;
+
+/**
+ * RoundPhase enum
+ * 
+ * The phases of Processor.playRound that are timed
+ */
+public enum RoundPhase {
+	SPAWN,         // choosing the next piece and spawning the current one
+	IO,            // sending the move requests and waiting for the responses
+	MOVES,         // executing the moves
+	LINE_CLEARING, // removing full rows
+	SCORING,       // row points, garbage and solid rows
+	SERIALIZATION; // writing the updates for the bots and the replay
+}
@@ -0,0 +1,196 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.bot;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.moves.MoveType;
+import com.theaigames.engine.io.InProcessBot;
+
+/**
+ * abstract class BlockbattleBot
+ * 
+ * Base class for Block Battle bots that run inside the engine. Keeps track
+ * of the settings and updates as typed values, so the bot only has to
+ * implement getMoves. Run it with "java-class:" followed by the class name
+ * as bot command.
+ */
+public abstract class BlockbattleBot implements InProcessBot {
+	
+	private static final String NO_MOVES = "no_moves";
+	
+	private long timebank;
+	private long timePerMove;
+	private int fieldWidth;
+	private int fieldHeight;
+	private String myName;
+	private List<String> playerNames;
+	private Map<String, BotPlayer> players;
+	
+	private int round;
+	private ShapeType thisPieceType;
+	private ShapeType nextPieceType;
+	private Point thisPiecePosition;
+	
+	public BlockbattleBot() {
+		this.playerNames = new ArrayList<String>();
+		this.players = new HashMap<String, BotPlayer>();
+	}
+	
+	/**
+	 * Returns the moves for the current piece
+	 * @param timeLeft : time left in the time bank in milliseconds
+	 * @return : the moves, an empty list to do nothing
+	 */
+	protected abstract List<MoveType> getMoves(long timeLeft);
+	
+	@Override
+	public void onSettings(String type, String value) {
+		if(type.equals("timebank")) {
+			this.timebank = Long.parseLong(value);
+		} else if(type.equals("time_per_move")) {
+			this.timePerMove = Long.parseLong(value);
+		} else if(type.equals("player_names")) {
+			this.playerNames.clear();
+			for(String name : value.split(","))
+				this.playerNames.add(name);
+		} else if(type.equals("your_bot")) {
+			this.myName = value;
+		} else if(type.equals("field_width")) {
+			this.fieldWidth = Integer.parseInt(value);
+		} else if(type.equals("field_height")) {
+			this.fieldHeight = Integer.parseInt(value);
+		}
+	}
+	
+	@Override
+	public void onUpdate(String player, String type, String value) {
+		if(player.equals("game")) {
+			if(type.equals("round")) {
+				this.round = Integer.parseInt(value);
+			} else if(type.equals("this_piece_type")) {
+				this.thisPieceType = ShapeType.valueOf(value);
+			} else if(type.equals("next_piece_type")) {
+				this.nextPieceType = ShapeType.valueOf(value);
+			} else if(type.equals("this_piece_position")) {
+				int comma = value.indexOf(',');
+				this.thisPiecePosition = new Point(Integer.parseInt(value.substring(0, comma)), Integer.parseInt(value.substring(comma + 1)));
+			}
+			return;
+		}
+		
+		BotPlayer botPlayer = getPlayer(player);
+		if(type.equals("row_points")) {
+			botPlayer.setRowPoints(Integer.parseInt(value));
+		} else if(type.equals("combo")) {
+			botPlayer.setCombo(Integer.parseInt(value));
+		} else if(type.equals("skips")) {
+			botPlayer.setSkips(Integer.parseInt(value));
+		} else if(type.equals("field")) {
+			if(botPlayer.getField() == null)
+				botPlayer.setField(new Field(this.fieldWidth, this.fieldHeight));
+			botPlayer.getField().setCells(value);
+		}
+	}
+	
+	@Override
+	public String onAction(String type, long time) {
+		if(!type.equals("moves"))
+			return null;
+		
+		List<MoveType> moves = getMoves(time);
+		if(moves == null || moves.isEmpty())
+			return NO_MOVES;
+		
+		StringBuilder response = new StringBuilder();
+		for(MoveType move : moves) {
+			if(response.length() > 0)
+				response.append(',');
+			response.append(move.toString());
+		}
+		return response.toString();
+	}
+	
+	private BotPlayer getPlayer(String name) {
+		BotPlayer botPlayer = this.players.get(name);
+		if(botPlayer == null) {
+			botPlayer = new BotPlayer(name);
+			this.players.put(name, botPlayer);
+		}
+		return botPlayer;
+	}
+	
+	public long getTimebank() {
+		return this.timebank;
+	}
+	
+	public long getTimePerMove() {
+		return this.timePerMove;
+	}
+	
+	public int getFieldWidth() {
+		return this.fieldWidth;
+	}
+	
+	public int getFieldHeight() {
+		return this.fieldHeight;
+	}
+	
+	public List<String> getPlayerNames() {
+		return this.playerNames;
+	}
+	
+	public int getRound() {
+		return this.round;
+	}
+	
+	public ShapeType getThisPieceType() {
+		return this.thisPieceType;
+	}
+	
+	public ShapeType getNextPieceType() {
+		return this.nextPieceType;
+	}
+	
+	public Point getThisPiecePosition() {
+		return this.thisPiecePosition;
+	}
+	
+	/**
+	 * @return : this bot's player
+	 */
+	public BotPlayer getMe() {
+		return getPlayer(this.myName);
+	}
+	
+	/**
+	 * @return : the first other player, null if there is none
+	 */
+	public BotPlayer getOpponent() {
+		for(String name : this.playerNames)
+			if(!name.equals(this.myName))
+				return getPlayer(name);
+		return null;
+	}
+}
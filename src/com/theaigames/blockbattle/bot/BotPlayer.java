@@ -0,0 +1,78 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.bot;
+
+import com.theaigames.blockbattle.field.Field;
+
+/**
+ * BotPlayer class
+ * 
+ * What an in-process bot knows about a player, as sent in the updates.
+ */
+public class BotPlayer {
+	
+	private final String name;
+	private Field field;
+	private int rowPoints;
+	private int combo;
+	private int skips;
+	
+	public BotPlayer(String name) {
+		this.name = name;
+	}
+	
+	public String getName() {
+		return this.name;
+	}
+	
+	/**
+	 * @return : the player's field from the last update, null before the first
+	 * update. The cells have no shape types.
+	 */
+	public Field getField() {
+		return this.field;
+	}
+	
+	public int getRowPoints() {
+		return this.rowPoints;
+	}
+	
+	public int getCombo() {
+		return this.combo;
+	}
+	
+	public int getSkips() {
+		return this.skips;
+	}
+	
+	void setField(Field field) {
+		this.field = field;
+	}
+	
+	void setRowPoints(int rowPoints) {
+		this.rowPoints = rowPoints;
+	}
+	
+	void setCombo(int combo) {
+		this.combo = combo;
+	}
+	
+	void setSkips(int skips) {
+		this.skips = skips;
+	}
+}
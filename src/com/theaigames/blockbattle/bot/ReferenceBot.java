@@ -0,0 +1,350 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.bot;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.theaigames.blockbattle.Processor;
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.field.PlacementFinder;
+import com.theaigames.blockbattle.field.Shape;
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.moves.MoveType;
+
+/**
+ * ReferenceBot class
+ * 
+ * Heuristic bot that ships with the engine, as an opponent that starts
+ * instantly and always plays the same way. Every placement of the current
+ * piece is frozen on a copy of the field and the field is scored on its
+ * aggregate height, holes, bumpiness and the slots it leaves for T-spins,
+ * plus the row points of the rows it clears. The hard level does the same
+ * for every placement of the next piece after the best placements of the
+ * current one.
+ * 
+ * The search stops when the bot has used its CPU budget for the move, or
+ * half of the time left in its time bank, and plays the best placement it
+ * has found so far.
+ * 
+ * Run it with "java-class:com.theaigames.blockbattle.bot.ReferenceBot",
+ * optionally followed by the level and the budget in milliseconds, like
+ * "java-class:com.theaigames.blockbattle.bot.ReferenceBot easy 10".
+ */
+public class ReferenceBot extends BlockbattleBot {
+	
+	public static final long DEFAULT_BUDGET = 50; // milliseconds
+	
+	private static final int LOSS = Integer.MIN_VALUE / 2; // scores of placements that lose the game
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	
+	public enum Strength {
+		
+		// weights of row points, aggregate height, holes, bumpiness and T-spin slots
+		EASY(0, 3, 10, 0, 0, false),
+		MEDIUM(10, 5, 25, 5, 0, false),
+		HARD(10, 5, 25, 5, 8, true);
+		
+		private final int pointsWeight;
+		private final int heightWeight;
+		private final int holesWeight;
+		private final int bumpinessWeight;
+		private final int tSlotWeight;
+		private final boolean lookAhead; // also places the next piece
+		
+		private Strength(int pointsWeight, int heightWeight, int holesWeight, int bumpinessWeight, int tSlotWeight, boolean lookAhead) {
+			this.pointsWeight = pointsWeight;
+			this.heightWeight = heightWeight;
+			this.holesWeight = holesWeight;
+			this.bumpinessWeight = bumpinessWeight;
+			this.tSlotWeight = tSlotWeight;
+			this.lookAhead = lookAhead;
+		}
+	}
+	
+	private final Strength strength;
+	private final long budget; // nanoseconds of CPU time per move
+	
+	private PlacementFinder finder;
+	private PlacementFinder nextFinder;
+	private Field startField; // the bot's field without the current piece
+	private Field field; // field the placements are tried on
+	private int[] heights;
+	private int[] scores;
+	private int[] order;
+	private boolean[] tSpins;
+	private List<MoveType> moves;
+	private long searchStart;
+	private long searchBudget;
+	
+	public ReferenceBot() {
+		this(Strength.HARD, DEFAULT_BUDGET);
+	}
+	
+	/**
+	 * @param arguments : the level, optionally followed by a space and the budget in milliseconds
+	 */
+	public ReferenceBot(String arguments) {
+		this(Strength.valueOf(arguments.trim().split(" +")[0].toUpperCase()), parseBudget(arguments));
+	}
+	
+	/**
+	 * @param strength : how well the bot plays
+	 * @param budget : CPU time the bot may use per move, in milliseconds
+	 */
+	public ReferenceBot(Strength strength, long budget) {
+		this.strength = strength;
+		this.budget = TimeUnit.MILLISECONDS.toNanos(budget);
+		this.finder = new PlacementFinder();
+		this.nextFinder = new PlacementFinder();
+		this.scores = new int[0];
+		this.moves = new ArrayList<MoveType>();
+	}
+	
+	@Override
+	protected List<MoveType> getMoves(long timeLeft) {
+		this.moves.clear();
+		Field myField = getMe().getField();
+		ShapeType type = getThisPieceType();
+		if(myField == null || type == null)
+			return this.moves;
+		
+		this.searchStart = getCpuTime();
+		this.searchBudget = Math.min(this.budget, TimeUnit.MILLISECONDS.toNanos(timeLeft) / 2);
+		
+		if(this.field == null || this.field.getWidth() != myField.getWidth() || this.field.getHeight() != myField.getHeight()) {
+			this.startField = new Field(myField.getWidth(), myField.getHeight());
+			this.field = new Field(myField.getWidth(), myField.getHeight());
+			this.heights = new int[myField.getWidth()];
+		}
+		this.startField.restore(myField.snapshot());
+		this.startField.cleanField();
+		Field.Snapshot start = this.startField.snapshot();
+		
+		int count = this.finder.find(this.startField, type);
+		if(count == 0)
+			return this.moves;
+		if(this.scores.length < count) {
+			this.scores = new int[count];
+			this.order = new int[count];
+			this.tSpins = new boolean[count];
+		}
+		
+		// score every placement of this piece on its own
+		int evaluated = 0;
+		while(evaluated < count && (evaluated == 0 || !isOutOfTime())) {
+			this.field.restore(start);
+			this.scores[evaluated] = score(this.finder, evaluated, type);
+			this.tSpins[evaluated] = isTSpin(this.finder, evaluated, type);
+			this.order[evaluated] = evaluated;
+			evaluated++;
+		}
+		sortByScore(this.order, this.scores, evaluated);
+		
+		int best = this.order[0];
+		ShapeType nextType = getNextPieceType();
+		if(this.strength.lookAhead && nextType != null && !isOutOfTime())
+			best = lookAhead(start, type, nextType, evaluated, best);
+		
+		if(this.scores[best] <= LOSS && getMe().getSkips() > 0) {
+			this.moves.add(MoveType.SKIP);
+			return this.moves;
+		}
+		
+		if(this.tSpins[best])
+			this.finder.getTSpinMoves(best, this.moves);
+		else
+			this.finder.getMoves(best, this.moves);
+		return this.moves;
+	}
+	
+	// scores the best placements of this piece again with the best placement of the next piece after them
+	private int lookAhead(Field.Snapshot start, ShapeType type, ShapeType nextType, int evaluated, int best) {
+		int bestScore = Integer.MIN_VALUE;
+		
+		for(int i = 0; i < evaluated && !isOutOfTime(); i++) {
+			int placement = this.order[i];
+			if(this.scores[placement] <= LOSS)
+				break;
+			
+			this.field.restore(start);
+			int points = place(this.finder, placement, type) * this.strength.pointsWeight;
+			Field.Snapshot afterPlacement = this.field.snapshot();
+			
+			int nextCount = this.nextFinder.find(this.field, nextType);
+			int nextScore = LOSS;
+			for(int next = 0; next < nextCount; next++) {
+				this.field.restore(afterPlacement);
+				nextScore = Math.max(nextScore, score(this.nextFinder, next, nextType));
+			}
+			
+			if(points + nextScore > bestScore) {
+				bestScore = points + nextScore;
+				best = placement;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Freezes a placement in the field and scores the field after it
+	 * @return : the score, LOSS if the placement loses the game
+	 */
+	private int score(PlacementFinder finder, int placement, ShapeType type) {
+		int rowPoints = place(finder, placement, type);
+		if(rowPoints < 0)
+			return LOSS;
+		return rowPoints * this.strength.pointsWeight + evaluate();
+	}
+	
+	/**
+	 * Freezes a placement in the field and removes the full rows
+	 * @return : the row points of the placement, -1 if it loses the game
+	 */
+	private int place(PlacementFinder finder, int placement, ShapeType type) {
+		for(int i = 0; i < Shape.BLOCKS; i++) {
+			int y = finder.getBlockY(placement, i);
+			if(y < 0) // the piece sticks out at the top
+				return -1;
+			this.field.setBlock(finder.getBlockX(placement, i), y, type);
+		}
+		
+		int rowsRemoved = this.field.processEndOfRoundField();
+		return getRowPoints(rowsRemoved, isTSpin(finder, placement, type), rowsRemoved > 0 && this.field.isFieldCleared());
+	}
+	
+	// the score of the field without the row points
+	private int evaluate() {
+		int width = this.field.getWidth();
+		int height = this.field.getHeight();
+		int fullRow = (int) ((1L << width) - 1);
+		
+		int holes = 0;
+		int above = 0; // columns that have a blocked cell above the current row
+		for(int y = 0; y < height; y++) {
+			int row = this.field.getBlockedRow(y);
+			holes += Integer.bitCount(above & ~row & fullRow);
+			int newColumns = row & ~above;
+			while(newColumns != 0) {
+				int x = Integer.numberOfTrailingZeros(newColumns);
+				this.heights[x] = height - y;
+				newColumns &= newColumns - 1;
+			}
+			above |= row;
+		}
+		
+		int aggregateHeight = 0;
+		int bumpiness = 0;
+		for(int x = 0; x < width; x++) {
+			if((above & (1 << x)) == 0)
+				this.heights[x] = 0;
+			aggregateHeight += this.heights[x];
+			if(x > 0)
+				bumpiness += Math.abs(this.heights[x] - this.heights[x - 1]);
+		}
+		
+		int tSlots = (this.strength.tSlotWeight > 0) ? countTSlots() : 0;
+		
+		return tSlots * this.strength.tSlotWeight - aggregateHeight * this.strength.heightWeight
+				- holes * this.strength.holesWeight - bumpiness * this.strength.bumpinessWeight;
+	}
+	
+	// counts the places where a T pointing down would rest with 3 blocked corners
+	private int countTSlots() {
+		int width = this.field.getWidth();
+		int height = this.field.getHeight();
+		int slots = 0;
+		
+		for(int y = 0; y + 2 < height; y++) {
+			int top = this.field.getBlockedRow(y);
+			int middle = this.field.getBlockedRow(y + 1);
+			int bottom = this.field.getBlockedRow(y + 2);
+			int below = (y + 3 < height) ? this.field.getBlockedRow(y + 3) : -1;
+			
+			for(int x = 0; x + 2 < width; x++) {
+				if(((middle >> x) & 7) != 0 || ((bottom >> (x + 1)) & 1) != 0 || ((below >> (x + 1)) & 1) == 0)
+					continue;
+				int corners = ((top >> x) & 1) + ((top >> (x + 2)) & 1) + ((bottom >> x) & 1) + ((bottom >> (x + 2)) & 1);
+				if(corners == 3)
+					slots++;
+			}
+		}
+		return slots;
+	}
+	
+	private boolean isTSpin(PlacementFinder finder, int placement, ShapeType type) {
+		return type == ShapeType.T && finder.isTSpinPossible(placement);
+	}
+	
+	// same points as the Processor gives, without the combo
+	private int getRowPoints(int rowsRemoved, boolean tSpin, boolean fieldCleared) {
+		if(fieldCleared)
+			return Processor.PERFECT_CLEAR_SCORE;
+		if(tSpin) {
+			switch(rowsRemoved) {
+				case 2: return Processor.DOUBLE_T_SCORE;
+				case 1: return Processor.SINGLE_T_SCORE;
+				default: return 0;
+			}
+		}
+		switch(rowsRemoved) {
+			case 4: return Processor.QUAD_CLEAR_SCORE;
+			case 3: return Processor.TRIPLE_CLEAR_SCORE;
+			case 2: return Processor.DOUBLE_CLEAR_SCORE;
+			case 1: return Processor.SINGLE_CLEAR_SCORE;
+			default: return 0;
+		}
+	}
+	
+	// sorts the first count placements from the highest to the lowest score
+	private void sortByScore(int[] placements, int[] scores, int count) {
+		for(int i = 1; i < count; i++) {
+			int placement = placements[i];
+			int j = i - 1;
+			while(j >= 0 && scores[placements[j]] < scores[placement]) {
+				placements[j + 1] = placements[j];
+				j--;
+			}
+			placements[j + 1] = placement;
+		}
+	}
+	
+	private boolean isOutOfTime() {
+		return getCpuTime() - this.searchStart >= this.searchBudget;
+	}
+	
+	private static long parseBudget(String arguments) {
+		String[] words = arguments.trim().split(" +");
+		if(words.length > 1)
+			return Long.parseLong(words[1]);
+		return DEFAULT_BUDGET;
+	}
+	
+	private static long getCpuTime() {
+		if(THREADS.isCurrentThreadCpuTimeSupported())
+			return THREADS.getCurrentThreadCpuTime();
+		return System.nanoTime();
+	}
+	
+	public Strength getStrength() {
+		return this.strength;
+	}
+}
@@ -68,10 +68,7 @@ public class Cell {
 	}
 	
 	public boolean hasCollision(Field f) {
-		Cell cell = f.getCell(this.location);
-		if(cell == null)
-			return false;
-		return (this.state == CellType.SHAPE && (cell.isSolid() || cell.isBlock()));
+		return (this.state == CellType.SHAPE && f.isBlocked(this.location.x, this.location.y));
 	}
 	
 	public void setLocation(int x, int y) {
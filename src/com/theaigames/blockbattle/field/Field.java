@@ -18,30 +18,125 @@
 package com.theaigames.blockbattle.field;
 
 import java.awt.Point;
-import java.security.SecureRandom;
+import java.util.Arrays;
 
+import com.theaigames.game.RandomStream;
+
+/**
+ * Field class
+ *
+ * Stores the playing field as one bitmask per row for every cell state
+ * (bit x of a row mask is set when cell x of that row has that state),
+ * plus an array with the shape type (colour) of each cell in the row.
+ * Rows are kept in storage slots that are looked up through a row index,
+ * so removing rows or pushing rows in from the bottom only rotates the
+ * index and never copies row contents.
+ * The cells of the active shape are tracked, so the shape can be removed
+ * from the field without scanning all rows.
+ * Every change to a slot increases its version, which the string caches
+ * use to render only the rows that changed since the last call.
+ */
 public class Field {
 
+	private static final int MAX_WIDTH = 32;
+	private static final int MAX_SHAPE_CELLS = 4;
+	private static final ShapeType[] SHAPE_TYPES = ShapeType.values();
+	private static final byte NO_SHAPE = (byte) ShapeType.NONE.ordinal();
+
 	private int width;
 	private int height;
 	private int solidRows;
-	public Cell grid[][];
-	private static final SecureRandom RANDOM = new SecureRandom();
-	
+	private int fullRowMask;
+	private int[] rowSlots; // storage slot of each row, from top to bottom
+	private int[] shapeRows; // all per row data below is indexed by slot
+	private int[] blockRows;
+	private int[] solidRowMasks;
+	private byte[][] shapeTypes;
+	private int[] shapeCellsX;
+	private int[] shapeCellsY;
+	private int shapeCellCount;
+	private boolean shapeCellsLost;
+	private int[] slotVersions;
+	private long fieldVersion;
+	private FieldStringCache stateStringCache;
+	private FieldStringCache visualizerStringCache;
+	private RandomStream random; // places the holes in garbage lines
+	private Snapshot snapshot; // last snapshot taken or restored, shared while the field doesn't change
+	private long snapshotVersion;
+
 	public Field(int width, int height) {
-		
+		this(width, height, new RandomStream());
+	}
+
+	/**
+	 * @param random : generator for the holes in garbage lines
+	 */
+	public Field(int width, int height, RandomStream random) {
+		if(width > MAX_WIDTH)
+			throw new IllegalArgumentException(String.format("Field width can't be larger than %d.", MAX_WIDTH));
+
 		this.height = height;
 		this.width = width;
 		this.solidRows = 0;
-		grid = new Cell[width][height];
-		
+		this.fullRowMask = (int) ((1L << width) - 1);
+		this.rowSlots = new int[height];
+		this.shapeRows = new int[height];
+		this.blockRows = new int[height];
+		this.solidRowMasks = new int[height];
+		this.shapeTypes = new byte[height][width];
+		this.shapeCellsX = new int[MAX_SHAPE_CELLS];
+		this.shapeCellsY = new int[MAX_SHAPE_CELLS];
+		this.shapeCellCount = 0;
+		this.shapeCellsLost = false;
+		this.slotVersions = new int[height];
+		this.fieldVersion = 0;
+		this.stateStringCache = new FieldStringCache(false);
+		this.visualizerStringCache = new FieldStringCache(true);
+		this.random = random;
+
 		for(int y=0; y < height; y++) {
-			for(int x=0; x < width; x++) {
-				grid[x][y] = new Cell(x, y);
-			}
+			rowSlots[y] = y;
+			Arrays.fill(shapeTypes[y], NO_SHAPE);
 		}
 	}
-	
+
+	/**
+	 * Sets all cells from a field string as it is sent to the bots, like
+	 * "0,0,1;2,2,3". Cells get no shape type.
+	 * @param fieldString : cell type codes, rows separated by ';' and cells by ','
+	 */
+	public void setCells(String fieldString) {
+		int cell = 0;
+		for(int slot=0; slot < height; slot++)
+			setRow(slot, 0, 0, 0, NO_SHAPE);
+
+		for(int i=0; i < fieldString.length() && cell < width * height; i++) {
+			char c = fieldString.charAt(i);
+			if(c == ',' || c == ';')
+				continue;
+
+			int x = cell % width;
+			int slot = rowSlots[cell / width];
+			int code = c - '0';
+			if(code == CellType.SHAPE.getCode())
+				shapeRows[slot] |= 1 << x;
+			else if(code == CellType.BLOCK.getCode())
+				blockRows[slot] |= 1 << x;
+			else if(code == CellType.SOLID.getCode())
+				solidRowMasks[slot] |= 1 << x;
+			cell++;
+		}
+
+		// count the solid rows at the bottom
+		this.solidRows = 0;
+		while(solidRows < height && solidRowMasks[rowSlots[height - solidRows - 1]] == fullRowMask)
+			solidRows++;
+
+		this.shapeCellCount = 0;
+		this.shapeCellsLost = true;
+		this.fieldVersion++;
+	}
+
 	// moves the whole field upwards to make room for new
 	// lines from the bottom, returns true if game over.
 	// leaves the bottom rows untouched (are changed in the appropriate
@@ -49,216 +144,525 @@ public class Field {
 	public boolean moveFieldUp(int amount) {
 		if(amount <= 0)
 			return false;
-		
+
 		boolean gameOver = false;
-		
-		for(int y = 0; y < height + amount - solidRows; y++) {
-			for(int x = 0; x < width; x++) {
 
-				int newY = y - amount;
-				
-				if(newY < 0 && !grid[x][y].isEmpty()) {
-					gameOver = true;
-				}
-				
-				if(newY >= 0 && y < height) { // move cells up
-					grid[x][newY] = grid[x][y].clone();
-					grid[x][newY].setLocation(x, newY);
-				}
-			}
+		// tracked shape cells don't move with the rows
+		if(shapeCellCount > 0)
+			shapeCellsLost = true;
+
+		// rows that are pushed out of the top of the field
+		for(int y = 0; y < amount && y < height; y++) {
+			if(isRowOccupied(rowSlots[y]))
+				gameOver = true;
 		}
-		
+
+		// move all rows above the solid rows up, the rows pushed out
+		// at the top are reused at the bottom
+		int movingRows = height - solidRows;
+		if(movingRows > 0)
+			rotateRowsUp(movingRows, amount % movingRows);
+
 		return gameOver;
 	}
-	
+
 	// adds solid rows to bottom, returns true if game over
 	public boolean addSolidRows(int amount) {
 		boolean gameOver = moveFieldUp(amount);
-		
+
 		// make the bottom rows into solid rows
-		for(int y = height - solidRows - 1; y > height - solidRows - amount - 1; y--) {
-			for(int x = 0; x < width; x++) {
-				grid[x][y].setSolid();
-			}
+		for(int y = height - solidRows - 1; y > height - solidRows - amount - 1 && y >= 0; y--) {
+			setRow(rowSlots[y], 0, 0, fullRowMask, NO_SHAPE);
 		}
-		
+
 		this.solidRows += amount;
-		
+
 		return gameOver;
 	}
-	
+
 	public boolean addGarbageLines(int amount, boolean firstIsSingle) {
 		boolean gameOver = moveFieldUp(amount);
-//		ArrayList<Integer> exclude = new ArrayList<Integer>();
 		int count = 0;
-		
+
 		// make the bottom rows into garbage lines
-		for(int y = height - solidRows - 1; y > height - solidRows - amount - 1; y--) {
-
-//			// add random hole, and make sure it is not on the same column
-//			// for multiple garbage lines
-//			int emptyCellIndex = RANDOM.nextInt(width - exclude.size());
-//			for(int ex : exclude) {
-//				if(emptyCellIndex < ex)
-//					break;
-//				emptyCellIndex++;
-//			}
-//			exclude.add(emptyCellIndex);
-//			Collections.sort(exclude);
-//
-//			for(int x = 0; x < width; x++) {
-//				if(x == emptyCellIndex)
-//					grid[x][y].setEmpty();
-//				else {
-//					grid[x][y].setBlock();
-//					grid[x][y].setShapeType(ShapeType.G);
-//				}
-//			}
-			
+		for(int y = height - solidRows - 1; y > height - solidRows - amount - 1 && y >= 0; y--) {
+
 			// switch between single and double holes in garbage lines
 			count++;
-			
-			for(int x = 0; x < width; x++) {
-				grid[x][y].setBlock();
-				grid[x][y].setShapeType(ShapeType.G);
-			}
-			
-			int index1 = RANDOM.nextInt(width);
-			grid[index1][y].setEmpty();
-			
+
+			int row = fullRowMask;
+
+			int index1 = random.nextInt(width);
+			row &= ~(1 << index1);
+
 			if ((count % 2 == 1 && !firstIsSingle) || (count % 2 == 0 && firstIsSingle)) { // double hole
-				int rotate = 1 + RANDOM.nextInt(width - 1);
+				int rotate = 1 + random.nextInt(width - 1);
 				int index2 = (index1 + rotate) % width;
-				grid[index2][y].setEmpty();
+				row &= ~(1 << index2);
+			}
+
+			int slot = rowSlots[y];
+			setRow(slot, 0, row, 0, (byte) ShapeType.G.ordinal());
+
+			// holes have no shape type
+			for(int x = 0; x < width; x++) {
+				if((row & (1 << x)) == 0)
+					shapeTypes[slot][x] = NO_SHAPE;
 			}
 		}
-		
+
 		return gameOver;
 	}
-	
+
 	// handles round end by clean up and checking for full rows
 	// returns number of full rows
 	public int processEndOfRoundField() {
 		int rowsRemoved = 0;
+
+		cleanField();
+
 		for(int y=0; y < height; y++) {
-			boolean fullRow = true;
-			
-			for(int x=0; x < width; x++) { 
-				if(grid[x][y].isShape())
-					grid[x][y].setEmpty();
-				if(!grid[x][y].isBlock()) // check if line contains only block cells
-					fullRow = false;
-			}
-			
-			if(fullRow) { // move cells down one line
-				for(int oy = y - 1; oy >= 0; oy--) {
-					for(int x=0; x < width; x++) {
-						grid[x][oy + 1] = grid[x][oy].clone(); 
-					}
-				}
-				for(int x=0; x < width; x++) {
-					grid[x][0].setEmpty();
-				}
+			if(blockRows[rowSlots[y]] == fullRowMask) { // move rows down one line
+				removeRow(y);
 				rowsRemoved++;
 			}
 		}
 		return rowsRemoved;
 	}
-	
+
 	// checks whether the whole field is empty
-	public boolean isFieldCleared() {	
-		for(int y=0; y < height; y++)
-			for(int x=0; x < width; x++)
-				if(grid[x][y].isBlock())
-					return false;
+	public boolean isFieldCleared() {
+		for(int slot=0; slot < height; slot++)
+			if(blockRows[slot] != 0)
+				return false;
 		return true;
 	}
-	
+
 	// removes shape cells from field
 	public void cleanField() {
-		for(int y=0; y < height; y++) {
-			for(int x=0; x < width; x++) { 
-				if(grid[x][y].isShape())
-					grid[x][y].setEmpty();
+		if(shapeCellsLost) { // fall back to checking every row
+			for(int slot=0; slot < height; slot++) {
+				clearShapeCells(slot);
+			}
+			shapeCellsLost = false;
+		} else {
+			for(int i=0; i < shapeCellCount; i++) {
+				clearShapeCell(shapeCellsX[i], rowSlots[shapeCellsY[i]]);
 			}
 		}
+		shapeCellCount = 0;
 	}
-	
+
 	public int getHeight() {
 		return this.height;
 	}
-	
+
 	public int getWidth() {
 		return this.width;
 	}
-	
+
+	/**
+	 * Returns a detached copy of the cell at given point, changing it
+	 * does not change the field.
+	 */
 	public Cell getCell(Point p) {
-		if(p.x < 0 || p.x >= width || p.y < 0 || p.y >= height)
+		if(!isInField(p.x, p.y))
 			return null;
-		return grid[p.x][p.y];
+		return new Cell(new Point(p.x, p.y), getCellType(p.x, p.y), getShapeType(p.x, p.y));
+	}
+
+	/**
+	 * Returns true if the cell at given coordinates is a block or solid cell,
+	 * cells outside of the field are never blocked.
+	 */
+	public boolean isBlocked(int x, int y) {
+		if(!isInField(x, y))
+			return false;
+		int slot = rowSlots[y];
+		return ((blockRows[slot] | solidRowMasks[slot]) & (1 << x)) != 0;
+	}
+
+	/**
+	 * @param y : row of the field
+	 * @return : bitmask of the block and solid cells in the row, bit x is cell x
+	 */
+	public int getBlockedRow(int y) {
+		int slot = rowSlots[y];
+		return blockRows[slot] | solidRowMasks[slot];
 	}
-	
+
+	public CellType getCellType(int x, int y) {
+		int slot = rowSlots[y];
+		int bit = 1 << x;
+		if((shapeRows[slot] & bit) != 0)
+			return CellType.SHAPE;
+		if((blockRows[slot] & bit) != 0)
+			return CellType.BLOCK;
+		if((solidRowMasks[slot] & bit) != 0)
+			return CellType.SOLID;
+		return CellType.EMPTY;
+	}
+
+	public ShapeType getShapeType(int x, int y) {
+		return SHAPE_TYPES[shapeTypes[rowSlots[y]][x]];
+	}
+
+	/**
+	 * Returns the number of free cells directly below given cell, before
+	 * a block, a solid cell or the bottom of the field is reached
+	 */
+	public int getFreeCellsBelow(int x, int y) {
+		int bit = 1 << x;
+		int ny = Math.max(y + 1, 0);
+		while(ny < height) {
+			int slot = rowSlots[ny];
+			if(((blockRows[slot] | solidRowMasks[slot]) & bit) != 0)
+				break;
+			ny++;
+		}
+		return ny - y - 1;
+	}
+
 	public void setShape(Point p, ShapeType shape) {
-		Cell cell = getCell(p);
-		if(cell != null && cell.isEmpty()) {
-			cell.setShape();
-			cell.setShapeType(shape);
+		setShape(p.x, p.y, shape);
+	}
+
+	public void setShape(int x, int y, ShapeType shape) {
+		if(isInField(x, y) && getCellType(x, y) == CellType.EMPTY) {
+			int slot = rowSlots[y];
+			shapeRows[slot] |= 1 << x;
+			shapeTypes[slot][x] = (byte) shape.ordinal();
+			slotChanged(slot);
+
+			if(shapeCellCount < MAX_SHAPE_CELLS) {
+				shapeCellsX[shapeCellCount] = x;
+				shapeCellsY[shapeCellCount] = y;
+				shapeCellCount++;
+			} else {
+				shapeCellsLost = true;
+			}
 		}
 	}
-	
+
 	public void setBlock(Point p, ShapeType shape) {
-		Cell cell = getCell(p);
-		if(cell != null) {
-			if(!cell.isSolid() && !cell.isBlock()) {
-				cell.setBlock();
-				cell.setShapeType(shape);
+		setBlock(p.x, p.y, shape);
+	}
+
+	public void setBlock(int x, int y, ShapeType shape) {
+		if(isInField(x, y)) {
+			int slot = rowSlots[y];
+			int bit = 1 << x;
+			if(((blockRows[slot] | solidRowMasks[slot]) & bit) == 0) {
+				shapeRows[slot] &= ~bit;
+				blockRows[slot] |= bit;
+				shapeTypes[slot][x] = (byte) shape.ordinal();
+				slotChanged(slot);
 			} else {
-				System.err.printf("Can't set block here. (%s %s)\n", p.toString(), shape);
+				System.err.printf("Can't set block here. (%s %s)\n", new Point(x, y).toString(), shape);
 			}
 		}
 	}
-	
+
 	public void setEmpty(Point p) {
-		Cell cell = getCell(p);
-		if(cell != null)
-			cell.setEmpty();
+		setEmpty(p.x, p.y);
+	}
+
+	public void setEmpty(int x, int y) {
+		if(isInField(x, y)) {
+			int slot = rowSlots[y];
+			int mask = ~(1 << x);
+			shapeRows[slot] &= mask;
+			blockRows[slot] &= mask;
+			solidRowMasks[slot] &= mask;
+			shapeTypes[slot][x] = NO_SHAPE;
+			slotChanged(slot);
+		}
+	}
+
+	/**
+	 * Returns the visualizer character of every cell, row by row from the top
+	 * left. Shape cells are left out, so the active shape is not included.
+	 */
+	public byte[] getPackedCells() {
+		byte[] cells = new byte[width * height];
+		for(int y=0; y < height; y++) {
+			int slot = rowSlots[y];
+			for(int x=0; x < width; x++) {
+				if((shapeRows[slot] & (1 << x)) != 0)
+					cells[y * width + x] = (byte) ('0' + CellType.EMPTY.getCode());
+				else
+					cells[y * width + x] = (byte) getCellChar(x, slot, true);
+			}
+		}
+		return cells;
+	}
+
+	public boolean isInField(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+
+	/**
+	 * Copies the complete state of the field, including the garbage
+	 * generator. As long as the field doesn't change, the same snapshot
+	 * is returned again instead of a new copy.
+	 * @return : the snapshot, it never changes
+	 */
+	public Snapshot snapshot() {
+		if(snapshot == null || snapshotVersion != fieldVersion) {
+			snapshot = new Snapshot(this);
+			snapshotVersion = fieldVersion;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Sets the field back to given snapshot, does nothing if the field
+	 * hasn't changed since that snapshot was taken or restored
+	 * @param snapshot : snapshot of a field with the same size
+	 */
+	public void restore(Snapshot snapshot) {
+		if(snapshot == this.snapshot && snapshotVersion == fieldVersion)
+			return;
+		if(snapshot.width != width || snapshot.height != height)
+			throw new IllegalArgumentException("Snapshot is of a field with another size.");
+
+		System.arraycopy(snapshot.rowSlots, 0, rowSlots, 0, height);
+		System.arraycopy(snapshot.shapeRows, 0, shapeRows, 0, height);
+		System.arraycopy(snapshot.blockRows, 0, blockRows, 0, height);
+		System.arraycopy(snapshot.solidRowMasks, 0, solidRowMasks, 0, height);
+		for(int slot=0; slot < height; slot++) {
+			System.arraycopy(snapshot.shapeTypes, slot * width, shapeTypes[slot], 0, width);
+			slotChanged(slot);
+		}
+		System.arraycopy(snapshot.shapeCellsX, 0, shapeCellsX, 0, MAX_SHAPE_CELLS);
+		System.arraycopy(snapshot.shapeCellsY, 0, shapeCellsY, 0, MAX_SHAPE_CELLS);
+		solidRows = snapshot.solidRows;
+		shapeCellCount = snapshot.shapeCellCount;
+		shapeCellsLost = snapshot.shapeCellsLost;
+		random.setState(snapshot.random);
+
+		this.snapshot = snapshot;
+		this.snapshotVersion = fieldVersion;
+	}
+
+	private boolean isRowOccupied(int slot) {
+		return (shapeRows[slot] | blockRows[slot] | solidRowMasks[slot]) != 0;
+	}
+
+	// removes given row, the rows above it move down and
+	// its slot is reused as an empty row at the top
+	private void removeRow(int y) {
+		int slot = rowSlots[y];
+		System.arraycopy(rowSlots, 0, rowSlots, 1, y);
+		rowSlots[0] = slot;
+		setRow(slot, 0, 0, 0, NO_SHAPE);
+		fieldVersion++;
+	}
+
+	// rotates the first given number of rows up by given amount, the rows
+	// at the top wrap around to the bottom of that range and are emptied
+	private void rotateRowsUp(int rows, int amount) {
+		if(amount == 0)
+			return;
+
+		reverseRows(0, amount - 1);
+		reverseRows(amount, rows - 1);
+		reverseRows(0, rows - 1);
+		fieldVersion++;
+
+		for(int y = rows - amount; y < rows; y++)
+			setRow(rowSlots[y], 0, 0, 0, NO_SHAPE);
+	}
+
+	private void reverseRows(int from, int to) {
+		while(from < to) {
+			int slot = rowSlots[from];
+			rowSlots[from] = rowSlots[to];
+			rowSlots[to] = slot;
+			from++;
+			to--;
+		}
+	}
+
+	// sets all shape cells in given slot to empty
+	private void clearShapeCells(int slot) {
+		int row = shapeRows[slot];
+		if(row == 0)
+			return;
+
+		for(int x = 0; x < width; x++) {
+			if((row & (1 << x)) != 0)
+				shapeTypes[slot][x] = NO_SHAPE;
+		}
+		shapeRows[slot] = 0;
+		slotChanged(slot);
+	}
+
+	// sets the cell to empty if it is a shape cell
+	private void clearShapeCell(int x, int slot) {
+		int bit = 1 << x;
+		if((shapeRows[slot] & bit) != 0) {
+			shapeRows[slot] &= ~bit;
+			shapeTypes[slot][x] = NO_SHAPE;
+			slotChanged(slot);
+		}
+	}
+
+	private void setRow(int slot, int shapeRow, int blockRow, int solidRow, byte shapeType) {
+		shapeRows[slot] = shapeRow;
+		blockRows[slot] = blockRow;
+		solidRowMasks[slot] = solidRow;
+		Arrays.fill(shapeTypes[slot], shapeType);
+		slotChanged(slot);
+	}
+
+	private void slotChanged(int slot) {
+		slotVersions[slot]++;
+		fieldVersion++;
+	}
+
+	// returns the character of a cell in the string representation
+	private char getCellChar(int x, int slot, boolean forVisualizer) {
+		byte shapeType = shapeTypes[slot][x];
+		if(forVisualizer && shapeType != NO_SHAPE)
+			return SHAPE_TYPES[shapeType].name().charAt(0);
+
+		int bit = 1 << x;
+		if((shapeRows[slot] & bit) != 0)
+			return (char) ('0' + CellType.SHAPE.getCode());
+		if((blockRows[slot] & bit) != 0)
+			return (char) ('0' + CellType.BLOCK.getCode());
+		if((solidRowMasks[slot] & bit) != 0)
+			return (char) ('0' + CellType.SOLID.getCode());
+		return (char) ('0' + CellType.EMPTY.getCode());
 	}
-	
+
 	/**
 	 * Returns string representation of the current field
-	 * pretty for printing in console
+	 * pretty for printing in console. The non-pretty strings are cached,
+	 * so as long as the field doesn't change the same String is returned.
 	 */
 	public String toString(boolean pretty, boolean forVisualizer) {
-		StringBuffer output = new StringBuffer();
-		
-		String rowConnector = ",";
-		String collumnConnector = ";";
+		if(!pretty) {
+			if(forVisualizer)
+				return visualizerStringCache.get();
+			return stateStringCache.get();
+		}
+
+		StringBuilder output = new StringBuilder(width * height * 2);
+
+		char rowConnector = ',';
+		char collumnConnector = ';';
 		if(pretty) {
-			rowConnector = " ";
-			collumnConnector = "\n";
+			rowConnector = ' ';
+			collumnConnector = '\n';
 		}
-		
-		String collumnJoin = "";
+
 		for(int y=0; y < height; y++) {
-			
-			output.append(collumnJoin);
-			
-			String rowJoin = "";
+
+			if(y > 0)
+				output.append(collumnConnector);
+
 			for(int x=0; x < width; x++) {
-				output.append(rowJoin);
-				String cellState = grid[x][y].getState().getCode() + "";
-				
-				if(forVisualizer && grid[x][y].getShapeType() != ShapeType.NONE) {
-					cellState = grid[x][y].getShapeType().toString();
-				}
-				
-				output.append(cellState);
-				rowJoin = rowConnector;
+				if(x > 0)
+					output.append(rowConnector);
+
+				ShapeType shapeType = getShapeType(x, y);
+				if(forVisualizer && shapeType != ShapeType.NONE)
+					output.append(shapeType.toString());
+				else
+					output.append(getCellType(x, y).getCode());
 			}
-			
-			collumnJoin = collumnConnector;
 		}
-		
+
 		return output.toString();
 	}
+
+	/**
+	 * Immutable copy of the state of a field, see snapshot()
+	 */
+	public static final class Snapshot {
+
+		private final int width;
+		private final int height;
+		private final int solidRows;
+		private final int[] rowSlots;
+		private final int[] shapeRows;
+		private final int[] blockRows;
+		private final int[] solidRowMasks;
+		private final byte[] shapeTypes; // width bytes per slot
+		private final int[] shapeCellsX;
+		private final int[] shapeCellsY;
+		private final int shapeCellCount;
+		private final boolean shapeCellsLost;
+		private final RandomStream random;
+
+		private Snapshot(Field field) {
+			this.width = field.width;
+			this.height = field.height;
+			this.solidRows = field.solidRows;
+			this.rowSlots = field.rowSlots.clone();
+			this.shapeRows = field.shapeRows.clone();
+			this.blockRows = field.blockRows.clone();
+			this.solidRowMasks = field.solidRowMasks.clone();
+			this.shapeTypes = new byte[field.width * field.height];
+			for(int slot=0; slot < field.height; slot++)
+				System.arraycopy(field.shapeTypes[slot], 0, this.shapeTypes, slot * field.width, field.width);
+			this.shapeCellsX = field.shapeCellsX.clone();
+			this.shapeCellsY = field.shapeCellsY.clone();
+			this.shapeCellCount = field.shapeCellCount;
+			this.shapeCellsLost = field.shapeCellsLost;
+			this.random = field.random.copy();
+		}
+	}
+
+	/**
+	 * Keeps the non-pretty string representation of the field in a
+	 * reusable char array, every cell is one character followed by a
+	 * connector. Rows are only rendered again if their slot or its
+	 * version changed.
+	 */
+	private class FieldStringCache {
+
+		private final boolean forVisualizer;
+		private final char[] chars;
+		private final int[] renderedSlots;
+		private final int[] renderedVersions;
+		private long renderedFieldVersion;
+		private String string;
+
+		FieldStringCache(boolean forVisualizer) {
+			this.forVisualizer = forVisualizer;
+			this.chars = new char[width * height * 2 - 1];
+			this.renderedSlots = new int[height];
+			this.renderedVersions = new int[height];
+			this.renderedFieldVersion = -1;
+
+			Arrays.fill(renderedSlots, -1);
+			for(int i = 1; i < chars.length; i += 2)
+				chars[i] = ((i + 1) % (width * 2) == 0) ? ';' : ',';
+		}
+
+		String get() {
+			if(renderedFieldVersion == fieldVersion)
+				return string;
+
+			for(int y=0; y < height; y++) {
+				int slot = rowSlots[y];
+				if(renderedSlots[y] == slot && renderedVersions[y] == slotVersions[slot])
+					continue;
+
+				int offset = y * width * 2;
+				for(int x=0; x < width; x++)
+					chars[offset + x * 2] = getCellChar(x, slot, forVisualizer);
+
+				renderedSlots[y] = slot;
+				renderedVersions[y] = slotVersions[slot];
+			}
+
+			string = new String(chars);
+			renderedFieldVersion = fieldVersion;
+			return string;
+		}
+	}
 }
@@ -0,0 +1,597 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.field;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.theaigames.blockbattle.moves.MoveType;
+
+/**
+ * PlacementFinder class
+ * 
+ * Finds every place a shape can be frozen in a field, starting from its
+ * spawn position and using the same move rules as Shape: turns that don't
+ * fit are skipped, a left or right that doesn't fit moves the shape down
+ * instead, down freezes the shape when it can't fall any further and drop
+ * freezes it on its landing row.
+ * 
+ * The poses (rotation, x, y) that can be reached without freezing are
+ * searched breadth first, so the path to each pose is a shortest one. Every
+ * pose freezes on its landing row, the landing poses with the same cells
+ * are one placement and keep the shortest of their move sequences. Poses
+ * are indexes in reused arrays and the visited poses are a bitset, so a
+ * search doesn't create any objects once the arrays fit the field.
+ * 
+ * The move count of a placement includes the drop at the end, unless the
+ * shape is already resting on its landing row, in which case the engine
+ * freezes it without a warning. Placements with cells above the field are
+ * found too, freezing a shape there loses the game.
+ */
+public class PlacementFinder {
+	
+	private static final int ROTATIONS = 4;
+	private static final int MARGIN = 4; // the square box can be this far left of and above the field
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+	private static final ShapeType[] SHAPE_TYPES = ShapeType.values();
+	
+	// the rotation with the same cells that has the lowest number, and how far its box is moved
+	private static final int[][] SAME_ROTATION = new int[SHAPE_TYPES.length][ROTATIONS];
+	private static final int[][] SAME_SHIFT_X = new int[SHAPE_TYPES.length][ROTATIONS];
+	private static final int[][] SAME_SHIFT_Y = new int[SHAPE_TYPES.length][ROTATIONS];
+	
+	static {
+		for(ShapeType type : SHAPE_TYPES) {
+			if(type == ShapeType.NONE || type == ShapeType.G)
+				continue;
+			for(int rotation = 0; rotation < ROTATIONS; rotation++) {
+				for(int same = 0; same <= rotation; same++) {
+					if(hasSameCells(type, rotation, same)) {
+						SAME_ROTATION[type.ordinal()][rotation] = same;
+						SAME_SHIFT_X[type.ordinal()][rotation] = getMinOffsetX(type, rotation) - getMinOffsetX(type, same);
+						SAME_SHIFT_Y[type.ordinal()][rotation] = getMinOffsetY(type, rotation) - getMinOffsetY(type, same);
+						break;
+					}
+				}
+			}
+		}
+	}
+	
+	private Field field;
+	private ShapeType type;
+	private int width;
+	private int height;
+	private int[] blockedRows; // copy of the field's block and solid cells, one bitmask per row
+	private int[] offsetsX; // offsets of the shape being searched
+	private int[] offsetsY;
+	private int stride; // poses in one row of one rotation
+	private int rotationSize; // poses of one rotation
+	private int spawnPose;
+	
+	// per pose, indexed by (rotation * (height + MARGIN) + y + MARGIN) * stride + x + MARGIN
+	private long[] visited;
+	private int[] distances;
+	private int[] parents;
+	private byte[] parentMoves;
+	private int[] placementOfPose;
+	private int[] landingYs;
+	private int[] queue;
+	private int queueLength;
+	
+	// per placement
+	private int placementCount;
+	private int[] landingPoses;
+	private int[] endPoses; // pose the move sequence ends in, before the drop
+	private boolean[] endsWithDrop;
+	private int[] moveCounts;
+	private int[] tSpinPoses; // pose before the turn of the shortest T-spin, -1 if there is none
+	private byte[] tSpinTurns;
+	private int[] tSpinMoveCounts;
+	
+	public PlacementFinder() {
+		this.offsetsX = new int[ROTATIONS * Shape.BLOCKS];
+		this.offsetsY = new int[ROTATIONS * Shape.BLOCKS];
+		this.blockedRows = new int[0];
+		this.placementCount = 0;
+		this.landingPoses = new int[0];
+		this.visited = new long[0];
+		this.distances = new int[0];
+	}
+	
+	/**
+	 * Finds all placements of a shape that spawns in given field
+	 * @param field : the field, cells of the current shape are ignored
+	 * @param type : type of the shape
+	 * @return : the number of placements, 0 if the shape can't spawn
+	 */
+	public int find(Field field, ShapeType type) {
+		init(field, type);
+		
+		int spawnX = (this.width - Shape.getSize(type)) / 2;
+		this.spawnPose = getPose(0, spawnX, -1);
+		if(!fits(0, spawnX, -1))
+			return 0;
+		
+		this.queueLength = 0;
+		visit(this.spawnPose, -1, null);
+		for(int head = 0; head < this.queueLength; head++) {
+			int pose = this.queue[head];
+			int rotation = getPoseRotation(pose);
+			int x = getPoseX(pose);
+			int y = getPoseY(pose);
+			
+			if(fits(rotation, x - 1, y))
+				visit(getPose(rotation, x - 1, y), pose, MoveType.LEFT);
+			if(fits(rotation, x + 1, y))
+				visit(getPose(rotation, x + 1, y), pose, MoveType.RIGHT);
+			int left = (rotation + ROTATIONS - 1) % ROTATIONS;
+			if(fits(left, x, y))
+				visit(getPose(left, x, y), pose, MoveType.TURNLEFT);
+			int right = (rotation + 1) % ROTATIONS;
+			if(fits(right, x, y))
+				visit(getPose(right, x, y), pose, MoveType.TURNRIGHT);
+			if(fits(rotation, x, y + 1))
+				visit(getPose(rotation, x, y + 1), pose, MoveType.DOWN);
+			
+			addPlacement(pose);
+		}
+		
+		if(type == ShapeType.T)
+			findTSpins();
+		
+		return this.placementCount;
+	}
+	
+	/**
+	 * Checks if given moves freeze the shape with the least possible moves
+	 * for where it ends up, counting the drop the engine adds when the
+	 * shape is still falling after the last move. Moves that leave the shape
+	 * where it is still count. Moves that end in a T-spin are compared to
+	 * the shortest T-spin into the same placement.
+	 * @param field : the field, cells of the current shape are ignored
+	 * @param type : type of the shape
+	 * @param moves : the moves, as sent by a bot
+	 * @return : true if no shorter sequence freezes the shape in the same place,
+	 * false if it is longer, skips the shape or the shape can't spawn
+	 */
+	public boolean isOptimal(Field field, ShapeType type, List<MoveType> moves) {
+		if(find(field, type) == 0)
+			return false;
+		
+		int rotation = getPoseRotation(this.spawnPose);
+		int x = getPoseX(this.spawnPose);
+		int y = getPoseY(this.spawnPose);
+		boolean isFrozen = false;
+		MoveType lastMove1 = null;
+		MoveType lastMove2 = null;
+		int lastX = -1;
+		int lastY = -1;
+		int moveCount = moves.size();
+		
+		// the same steps as Processor.executeMovesForPlayer
+		for(MoveType move : moves) {
+			lastX = x;
+			lastY = y;
+			
+			if(isFrozen)
+				break;
+			switch(move) {
+				case LEFT:
+				case RIGHT:
+					int newX = (move == MoveType.LEFT) ? x - 1 : x + 1;
+					if(fits(rotation, newX, y))
+						x = newX;
+					else if(fits(rotation, x, y + 1))
+						y++;
+					else
+						isFrozen = true;
+					break;
+				case TURNLEFT:
+				case TURNRIGHT:
+					int newRotation = (rotation + ((move == MoveType.TURNLEFT) ? ROTATIONS - 1 : 1)) % ROTATIONS;
+					if(fits(newRotation, x, y))
+						rotation = newRotation;
+					break;
+				case DOWN:
+					if(fits(rotation, x, y + 1))
+						y++;
+					else
+						isFrozen = true;
+					break;
+				case DROP:
+					y = getLandingY(rotation, x, y);
+					isFrozen = true;
+					break;
+				case SKIP:
+					return false;
+			}
+			
+			lastMove2 = lastMove1;
+			lastMove1 = move;
+		}
+		
+		boolean isTSpin;
+		if(!isFrozen && getLandingY(rotation, x, y) != y) {
+			y = getLandingY(rotation, x, y);
+			moveCount++;
+			isTSpin = false;
+		} else {
+			isTSpin = isTSpin(lastMove1, lastMove2, rotation, x, y, lastX, lastY);
+		}
+		
+		int placement = this.placementOfPose[getSamePose(getPose(rotation, x, y))];
+		if(isTSpin)
+			return moveCount <= this.tSpinMoveCounts[placement];
+		return moveCount <= this.moveCounts[placement];
+	}
+	
+	/**
+	 * @return : the number of placements found by the last search
+	 */
+	public int getPlacementCount() {
+		return this.placementCount;
+	}
+	
+	/**
+	 * @return : rotation of the shape when it's frozen, 0 is the spawn rotation
+	 */
+	public int getRotation(int placement) {
+		return getPoseRotation(this.landingPoses[placement]);
+	}
+	
+	/**
+	 * @return : x of the shape's square box when it's frozen
+	 */
+	public int getX(int placement) {
+		return getPoseX(this.landingPoses[placement]);
+	}
+	
+	/**
+	 * @return : y of the shape's square box when it's frozen
+	 */
+	public int getY(int placement) {
+		return getPoseY(this.landingPoses[placement]);
+	}
+	
+	/**
+	 * @return : x of given block of the shape when it's frozen
+	 */
+	public int getBlockX(int placement, int block) {
+		int pose = this.landingPoses[placement];
+		return getPoseX(pose) + this.offsetsX[getPoseRotation(pose) * Shape.BLOCKS + block];
+	}
+	
+	/**
+	 * @return : y of given block of the shape when it's frozen
+	 */
+	public int getBlockY(int placement, int block) {
+		int pose = this.landingPoses[placement];
+		return getPoseY(pose) + this.offsetsY[getPoseRotation(pose) * Shape.BLOCKS + block];
+	}
+	
+	/**
+	 * @return : the length of the shortest move sequence into given placement
+	 */
+	public int getMoveCount(int placement) {
+		return this.moveCounts[placement];
+	}
+	
+	/**
+	 * Replaces the content of given list with the shortest move sequence
+	 * into given placement. The sequence can be a T-spin when that is as
+	 * short as any other.
+	 * @param placement : index of the placement
+	 * @param moves : list that gets the moves
+	 */
+	public void getMoves(int placement, List<MoveType> moves) {
+		moves.clear();
+		addPath(this.endPoses[placement], moves);
+		if(this.endsWithDrop[placement])
+			moves.add(MoveType.DROP);
+	}
+	
+	/**
+	 * @return : a new list with the shortest move sequence into given placement
+	 */
+	public List<MoveType> getMoves(int placement) {
+		List<MoveType> moves = new ArrayList<MoveType>();
+		getMoves(placement, moves);
+		return moves;
+	}
+	
+	/**
+	 * @return : true if a T shape can be turned into given placement as a T-spin
+	 */
+	public boolean isTSpinPossible(int placement) {
+		return this.tSpinPoses[placement] >= 0;
+	}
+	
+	/**
+	 * @return : the length of the shortest T-spin into given placement,
+	 * Integer.MAX_VALUE if there is none
+	 */
+	public int getTSpinMoveCount(int placement) {
+		return this.tSpinMoveCounts[placement];
+	}
+	
+	/**
+	 * Replaces the content of given list with the shortest T-spin into
+	 * given placement, leaves it empty if there is none
+	 * @param placement : index of the placement
+	 * @param moves : list that gets the moves
+	 */
+	public void getTSpinMoves(int placement, List<MoveType> moves) {
+		moves.clear();
+		int pose = this.tSpinPoses[placement];
+		if(pose < 0)
+			return;
+		
+		addPath(pose, moves);
+		moves.add(MoveType.fromOrdinal(this.tSpinTurns[placement]));
+		if(moves.size() < 2) // a turn straight after spawning has no move before it, so it doesn't count
+			moves.add(MoveType.DROP);
+	}
+	
+	private void init(Field field, ShapeType type) {
+		this.field = field;
+		this.type = type;
+		this.placementCount = 0;
+		
+		for(int rotation = 0; rotation < ROTATIONS; rotation++) {
+			for(int block = 0; block < Shape.BLOCKS; block++) {
+				this.offsetsX[rotation * Shape.BLOCKS + block] = Shape.getBlockOffsetX(type, rotation, block);
+				this.offsetsY[rotation * Shape.BLOCKS + block] = Shape.getBlockOffsetY(type, rotation, block);
+			}
+		}
+		
+		this.width = field.getWidth();
+		this.height = field.getHeight();
+		if(this.blockedRows.length < this.height)
+			this.blockedRows = new int[this.height];
+		for(int y = 0; y < this.height; y++)
+			this.blockedRows[y] = field.getBlockedRow(y);
+		
+		this.stride = this.width + MARGIN;
+		this.rotationSize = this.stride * (this.height + MARGIN);
+		int poses = ROTATIONS * this.rotationSize;
+		
+		if(this.distances.length < poses) {
+			this.visited = new long[(poses + 63) >>> 6];
+			this.distances = new int[poses];
+			this.parents = new int[poses];
+			this.parentMoves = new byte[poses];
+			this.placementOfPose = new int[poses];
+			this.landingYs = new int[poses];
+			this.queue = new int[poses];
+		} else {
+			Arrays.fill(this.visited, 0L);
+		}
+		Arrays.fill(this.placementOfPose, 0, poses, -1);
+		Arrays.fill(this.landingYs, 0, poses, UNKNOWN);
+		
+		if(this.landingPoses.length < poses) {
+			this.landingPoses = new int[poses];
+			this.endPoses = new int[poses];
+			this.endsWithDrop = new boolean[poses];
+			this.moveCounts = new int[poses];
+			this.tSpinPoses = new int[poses];
+			this.tSpinTurns = new byte[poses];
+			this.tSpinMoveCounts = new int[poses];
+		}
+	}
+	
+	private void visit(int pose, int parent, MoveType move) {
+		long bit = 1L << pose;
+		int word = pose >>> 6;
+		if((this.visited[word] & bit) != 0)
+			return;
+		
+		this.visited[word] |= bit;
+		this.parents[pose] = parent;
+		this.parentMoves[pose] = (move == null) ? -1 : (byte) move.ordinal();
+		this.distances[pose] = (parent < 0) ? 0 : this.distances[parent] + 1;
+		this.queue[this.queueLength++] = pose;
+	}
+	
+	private boolean isVisited(int pose) {
+		return (this.visited[pose >>> 6] & (1L << pose)) != 0;
+	}
+	
+	// the shape freezes on the landing row of each reachable pose
+	private void addPlacement(int pose) {
+		int rotation = getPoseRotation(pose);
+		int x = getPoseX(pose);
+		int y = getPoseY(pose);
+		int landingY = getLandingY(rotation, x, y);
+		int landingPose = getPose(rotation, x, landingY);
+		
+		boolean endsWithDrop = landingY != y || pose == this.spawnPose; // at least one move is sent
+		int moveCount = this.distances[pose] + (endsWithDrop ? 1 : 0);
+		
+		int samePose = getSamePose(landingPose);
+		int placement = this.placementOfPose[samePose];
+		if(placement < 0) {
+			placement = this.placementCount++;
+			this.placementOfPose[samePose] = placement;
+			this.tSpinPoses[placement] = -1;
+			this.tSpinMoveCounts[placement] = Integer.MAX_VALUE;
+		} else if(this.moveCounts[placement] <= moveCount) {
+			return;
+		}
+		
+		this.landingPoses[placement] = landingPose;
+		this.endPoses[placement] = pose;
+		this.endsWithDrop[placement] = endsWithDrop;
+		this.moveCounts[placement] = moveCount;
+	}
+	
+	// a T-spin ends with a turn into a resting pose, that pose has to be reached from another rotation
+	private void findTSpins() {
+		for(int i = 0; i < this.queueLength; i++) {
+			int pose = this.queue[i];
+			int rotation = getPoseRotation(pose);
+			int x = getPoseX(pose);
+			int y = getPoseY(pose);
+			
+			if(getLandingY(rotation, x, y) != y || getTSpinCorners(x, y) != 3)
+				continue;
+			
+			int placement = this.placementOfPose[getSamePose(pose)];
+			addTSpin(placement, getPose((rotation + 1) % ROTATIONS, x, y), MoveType.TURNLEFT);
+			addTSpin(placement, getPose((rotation + ROTATIONS - 1) % ROTATIONS, x, y), MoveType.TURNRIGHT);
+		}
+	}
+	
+	private void addTSpin(int placement, int from, MoveType turn) {
+		if(!isVisited(from))
+			return;
+		
+		int moveCount = this.distances[from] + ((this.distances[from] == 0) ? 2 : 1);
+		if(moveCount >= this.tSpinMoveCounts[placement])
+			return;
+		
+		this.tSpinPoses[placement] = from;
+		this.tSpinTurns[placement] = (byte) turn.ordinal();
+		this.tSpinMoveCounts[placement] = moveCount;
+	}
+	
+	// same rules as Shape.checkTSpin
+	private boolean isTSpin(MoveType lastMove1, MoveType lastMove2, int rotation, int x, int y, int lastX, int lastY) {
+		if(this.type != ShapeType.T || lastMove1 == null || lastMove2 == null)
+			return false;
+		
+		if(!(lastMove1 == MoveType.TURNRIGHT || lastMove1 == MoveType.TURNLEFT
+				|| ((lastMove1 == MoveType.DOWN || lastMove1 == MoveType.DROP)
+				&& (lastMove2 == MoveType.TURNLEFT || lastMove2 == MoveType.TURNRIGHT)
+				&& lastX == x && lastY == y)))
+			return false;
+		
+		return getTSpinCorners(x, y) == 3;
+	}
+	
+	private int getTSpinCorners(int x, int y) {
+		int counter = 0;
+		if(isBlock(x, y))
+			counter++;
+		if(isBlock(x + 2, y))
+			counter++;
+		if(isBlock(x, y + 2))
+			counter++;
+		if(isBlock(x + 2, y + 2))
+			counter++;
+		return counter;
+	}
+	
+	private boolean isBlock(int x, int y) {
+		return this.field.isInField(x, y) && this.field.getCellType(x, y) == CellType.BLOCK;
+	}
+	
+	private void addPath(int pose, List<MoveType> moves) {
+		int start = moves.size();
+		for(int p = pose; this.parents[p] >= 0; p = this.parents[p])
+			moves.add(MoveType.fromOrdinal(this.parentMoves[p]));
+		
+		// the moves were added from the last to the first
+		for(int i = start, j = moves.size() - 1; i < j; i++, j--) {
+			MoveType move = moves.get(i);
+			moves.set(i, moves.get(j));
+			moves.set(j, move);
+		}
+	}
+	
+	// true if the shape is in the field and on free cells, the same checks as Shape does before a turn
+	private boolean fits(int rotation, int x, int y) {
+		int first = rotation * Shape.BLOCKS;
+		
+		for(int i = first; i < first + Shape.BLOCKS; i++) {
+			int blockX = x + this.offsetsX[i];
+			int blockY = y + this.offsetsY[i];
+			if(blockX < 0 || blockX >= this.width || blockY >= this.height)
+				return false;
+			if(blockY >= 0 && (this.blockedRows[blockY] & (1 << blockX)) != 0)
+				return false;
+		}
+		return true;
+	}
+	
+	// the row a drop from given pose ends on, each row below it on the way gets the same answer
+	private int getLandingY(int rotation, int x, int y) {
+		int pose = getPose(rotation, x, y);
+		int landingY = this.landingYs[pose];
+		if(landingY == UNKNOWN) {
+			landingY = fits(rotation, x, y + 1) ? getLandingY(rotation, x, y + 1) : y;
+			this.landingYs[pose] = landingY;
+		}
+		return landingY;
+	}
+	
+	private int getPose(int rotation, int x, int y) {
+		return rotation * this.rotationSize + (y + MARGIN) * this.stride + x + MARGIN;
+	}
+	
+	private int getPoseRotation(int pose) {
+		return pose / this.rotationSize;
+	}
+	
+	private int getPoseX(int pose) {
+		return pose % this.stride - MARGIN;
+	}
+	
+	private int getPoseY(int pose) {
+		return pose % this.rotationSize / this.stride - MARGIN;
+	}
+	
+	// the pose of the rotation with the lowest number that has the same cells
+	private int getSamePose(int pose) {
+		int rotation = getPoseRotation(pose);
+		int t = this.type.ordinal();
+		return getPose(SAME_ROTATION[t][rotation], getPoseX(pose) + SAME_SHIFT_X[t][rotation], getPoseY(pose) + SAME_SHIFT_Y[t][rotation]);
+	}
+	
+	private static boolean hasSameCells(ShapeType type, int rotation1, int rotation2) {
+		int shiftX = getMinOffsetX(type, rotation1) - getMinOffsetX(type, rotation2);
+		int shiftY = getMinOffsetY(type, rotation1) - getMinOffsetY(type, rotation2);
+		
+		for(int i = 0; i < Shape.BLOCKS; i++) {
+			boolean found = false;
+			for(int j = 0; j < Shape.BLOCKS; j++) {
+				if(Shape.getBlockOffsetX(type, rotation1, i) - shiftX == Shape.getBlockOffsetX(type, rotation2, j)
+						&& Shape.getBlockOffsetY(type, rotation1, i) - shiftY == Shape.getBlockOffsetY(type, rotation2, j))
+					found = true;
+			}
+			if(!found)
+				return false;
+		}
+		return true;
+	}
+	
+	private static int getMinOffsetX(ShapeType type, int rotation) {
+		int min = Integer.MAX_VALUE;
+		for(int i = 0; i < Shape.BLOCKS; i++)
+			min = Math.min(min, Shape.getBlockOffsetX(type, rotation, i));
+		return min;
+	}
+	
+	private static int getMinOffsetY(ShapeType type, int rotation) {
+		int min = Integer.MAX_VALUE;
+		for(int i = 0; i < Shape.BLOCKS; i++)
+			min = Math.min(min, Shape.getBlockOffsetY(type, rotation, i));
+		return min;
+	}
+}
@@ -18,155 +18,142 @@
 package com.theaigames.blockbattle.field;
 
 import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.theaigames.blockbattle.moves.Move;
 import com.theaigames.blockbattle.moves.MoveType;
 
+/**
+ * Shape class
+ * 
+ * A shape is stored as its pose: type, rotation and the location of its
+ * square box in the field. The cells of each rotation are looked up in
+ * static offset tables, so moving and turning the shape does not allocate.
+ */
 public class Shape {
 
+	public static final int BLOCKS = 4;
+	private static final int ROTATIONS = 4;
+	private static final int[] SIZES = new int[ShapeType.values().length];
+	private static final int[][][] OFFSETS_X = new int[ShapeType.values().length][][]; // [type][rotation][block]
+	private static final int[][][] OFFSETS_Y = new int[ShapeType.values().length][][];
+	
+	private static final String[] SHIFTS = {"left", "right"};
+	private static final String[] TURNS = {"turnleft", "turnright"};
+	private static final String SHIFT_OUT_OF_BOUNDS = "Piece is on the field boundary. Action changed to 'down'.";
+	private static final String SHIFT_COLLISION = "Other blocks are in the way. Action changed to 'down'.";
+	private static final String TURN_OUT_OF_BOUNDS = "Piece would move out of bounds. Move skipped.";
+	private static final String TURN_COLLISION = "Other blocks are in the way. Move skipped.";
+
+	static {
+		// the cells of each shape in its square box at rotation 0
+		setOffsets(ShapeType.I, 4, new int[] {0, 1, 2, 3}, new int[] {1, 1, 1, 1});
+		setOffsets(ShapeType.J, 3, new int[] {0, 0, 1, 2}, new int[] {0, 1, 1, 1});
+		setOffsets(ShapeType.L, 3, new int[] {2, 0, 1, 2}, new int[] {0, 1, 1, 1});
+		setOffsets(ShapeType.O, 2, new int[] {0, 1, 0, 1}, new int[] {0, 0, 1, 1});
+		setOffsets(ShapeType.S, 3, new int[] {1, 2, 0, 1}, new int[] {0, 0, 1, 1});
+		setOffsets(ShapeType.T, 3, new int[] {1, 0, 1, 2}, new int[] {0, 1, 1, 1});
+		setOffsets(ShapeType.Z, 3, new int[] {0, 1, 1, 2}, new int[] {0, 0, 1, 1});
+	}
+
 	public ShapeType type;
-	private Cell[][] shape;
 	private int size;
+	private int rotation;
 	private Point location;
-	private Cell[] blocks;
 	private Field field;
 	private boolean isFrozen;
+	private boolean isSkipped;
+	private boolean isSpawned;
 	
 	public Shape(ShapeType type, Field field) {
 		this.type = type;
 		this.field = field;
-		this.blocks = new Cell[4];
+		this.size = SIZES[type.ordinal()];
+		this.rotation = 0;
 		this.isFrozen = false;
-		
-		setShape();
-	}
-	
-	// used for cloning
-	public Shape(ShapeType type, int size, Field field, Point location, Cell[][] shape, Cell[] blocks, boolean isFrozen) {
-		this.type = type;
-		this.size = size;
-		this.field = field;
-		this.location = location;
-		this.shape = shape;
-		this.blocks = blocks;
-		this.isFrozen = isFrozen;
+		this.isSkipped = false;
+		this.isSpawned = false;
 	}
 	
 	public Shape clone() {
-		Shape clone;
+		Shape clone = new Shape(this.type, this.field);
 		
-		if(this.location == null)
-			clone = new Shape(this.type, this.field);
-		else {
-			Cell[][] shapeClone = new Cell[size][size];
-			Cell[] blocksClone = new Cell[4];
-			int blockNr = 0;
-			for(int y=0; y < size; y++) {
-				for(int x=0; x < size; x++) {
-					shapeClone[x][y] = shape[x][y].clone();
-					if(shapeClone[x][y].isShape()) {
-						blocksClone[blockNr] = shapeClone[x][y];
-						blockNr++;
-					}
-				}
-			}
-			clone = new Shape(this.type, this.size, this.field, (Point) this.location.clone(), shapeClone, blocksClone, isFrozen);
-		}
+		clone.rotation = this.rotation;
+		clone.isFrozen = this.isFrozen;
+		clone.isSkipped = this.isSkipped;
+		clone.isSpawned = this.isSpawned;
+		if(this.location != null)
+			clone.location = new Point(this.location);
 		
 		return clone;
 	}
 	
+	/**
+	 * @param field : field the copy is in
+	 * @return : a copy of this shape with the same pose in given field
+	 */
+	public Shape copy(Field field) {
+		Shape copy = clone();
+		copy.field = field;
+		return copy;
+	}
+	
 	// spawns the shape
 	public boolean spawnShape() {
 		int x = (field.getWidth() - this.size) / 2;
 		int y = -1;
 		
 		this.location = new Point(x, y);
-		setBlockLocations();
 		
 		if(hasCollision())
 			return false;
 		
 		setShapeInField();
+		isSpawned = true;
 		return true;
 	}
 
 	////// Turn actions /////
 	
 	public String turnLeft() {
-		Shape clone = this.clone();
-		
-		Cell[][] temp = clone.transposeShape();
-		for(int y=0; y < size; y++) {
-			for(int x=0; x < size; x++) {
-				clone.shape[x][y] = temp[x][size - y - 1];
-			}
-		}
-		
-		clone.setBlockLocations();
-		String error = clone.checkForPositionErrors("turnleft");
+		int newRotation = (rotation + ROTATIONS - 1) % ROTATIONS;
+		String error = checkForPositionErrors("turnleft", newRotation, location.x, location.y);
 		
 		if(error.isEmpty())
-			takePosition(clone);
+			takePosition(newRotation, location.x, location.y);
 		
 		return error;
 	}
 	
 	public String turnRight() {
-		Shape clone = this.clone();
+		int newRotation = (rotation + 1) % ROTATIONS;
+		String error = checkForPositionErrors("turnright", newRotation, location.x, location.y);
 		
-		Cell[][] temp = clone.transposeShape();
-		for(int x=0; x < size; x++) {
-			clone.shape[x] = temp[size - x - 1];
-		}
-		
-		clone.setBlockLocations();
-		String error = clone.checkForPositionErrors("turnright");
-		
-		if(error.isEmpty()) {
-			takePosition(clone);
-		}
+		if(error.isEmpty())
+			takePosition(newRotation, location.x, location.y);
 		
 		return error;
 	}
 	
-	private Cell[][] transposeShape() {
-		Cell[][] temp = new Cell[size][size];
-		for(int y=0; y < size; y++) {
-			for(int x=0; x < size; x++) {
-				temp[y][x] = shape[x][y];
-			}
-		}
-		return temp;
-	}
-	
 	///////////////////////////
 	
 	///// Shift actions /////
 	
 	public String oneDown() {
-		Shape clone = this.clone();
-		
-		clone.location.y++;
-		clone.setBlockLocations();
-		
-		if(clone.isBelowBottom() || clone.hasCollision())
+		if(isBelowBottom(rotation, location.x, location.y + 1) || hasCollision(rotation, location.x, location.y + 1))
 			freezeInField();
 		else
-			takePosition(clone);
+			takePosition(rotation, location.x, location.y + 1);
 		
 		return ""; // can't return an error
 	}
 	
 	public String oneLeft() {
-		Shape clone = this.clone();
-		
-		clone.location.x--;
-		clone.setBlockLocations();
-		String error = clone.checkForPositionErrors("left");
+		String error = checkForPositionErrors("left", rotation, location.x - 1, location.y);
 		
 		if(error.isEmpty())
-			takePosition(clone);
+			takePosition(rotation, location.x - 1, location.y);
 		else
 			oneDown();
 		
@@ -174,23 +161,23 @@ public class Shape {
 	}
 	
 	public String oneRight() {
-		Shape clone = this.clone();
-		
-		clone.location.x++;
-		clone.setBlockLocations();
-		String error = clone.checkForPositionErrors("right");
+		String error = checkForPositionErrors("right", rotation, location.x + 1, location.y);
 		
 		if(error.isEmpty())
-			takePosition(clone);
+			takePosition(rotation, location.x + 1, location.y);
 		else
 			oneDown();
 		
 		return error;
 	}
 	
+	// moves the shape straight to its landing row and freezes it there
 	public String drop() {
-		while(!isFrozen) {
-			oneDown();
+		if(!isFrozen) {
+			int distance = getDropDistance();
+			if(distance > 0)
+				takePosition(rotation, location.x, location.y + distance);
+			freezeInField();
 		}
 		return ""; // can't return an error
 	}
@@ -199,81 +186,144 @@ public class Shape {
 	
 	public void skip() {
 		
-		for(int i=0; i < blocks.length; i++) {
-			blocks[i].setEmpty();
-			field.setEmpty(blocks[i].getLocation());
+		for(int i=0; i < BLOCKS; i++) {
+			field.setEmpty(getBlockX(i), getBlockY(i));
 		}
 		
+		isSkipped = true;
 		isFrozen = true;
 	}
 	
 	////////////////////////////////////
 	
-	private void takePosition(Shape shape) {		
-		this.shape = shape.shape;
-		this.blocks = shape.blocks;
-		this.location = shape.location;
-		
+	private void takePosition(int rotation, int x, int y) {
 		field.cleanField();
+		
+		this.rotation = rotation;
+		this.location.setLocation(x, y);
+		
 		setShapeInField();
 	}
 	
 	//// Position checks /////
 	
 	public boolean hasCollision() {
-		for(int i=0; i < blocks.length; i++) {
-			if(blocks[i].hasCollision(field))
+		return hasCollision(rotation, location.x, location.y);
+	}
+	
+	public boolean isBelowBottom() {
+		return isBelowBottom(rotation, location.x, location.y);
+	}
+	
+	public boolean isOutOfBoundaries() {
+		return isOutOfBoundaries(rotation, location.x, location.y);
+	}
+	
+	public boolean isOverflowing() {
+		if(isSkipped)
+			return false;
+		
+		for(int i=0; i < BLOCKS; i++) {
+			if(getBlockY(i) < 0)
 				return true;
 		}
 		return false;
 	}
 	
-	public boolean isBelowBottom() {
-		for(int i=0; i < blocks.length; i++) {
-			if(blocks[i].isBelowBottom(field))
+	private boolean hasCollision(int rotation, int x, int y) {
+		if(isSkipped)
+			return false;
+		
+		int[] offsetsX = OFFSETS_X[type.ordinal()][rotation];
+		int[] offsetsY = OFFSETS_Y[type.ordinal()][rotation];
+		for(int i=0; i < BLOCKS; i++) {
+			if(field.isBlocked(x + offsetsX[i], y + offsetsY[i]))
 				return true;
 		}
 		return false;
 	}
 	
-	public boolean isOutOfBoundaries() {
-		for(int i=0; i < blocks.length; i++) {
-			if(blocks[i].isOutOfBoundaries(field))
+	private boolean isBelowBottom(int rotation, int x, int y) {
+		int[] offsetsY = OFFSETS_Y[type.ordinal()][rotation];
+		for(int i=0; i < BLOCKS; i++) {
+			if(y + offsetsY[i] >= field.getHeight())
 				return true;
 		}
 		return false;
 	}
 	
-	public boolean isOverflowing() {
-		for(int i=0; i < blocks.length; i++) {
-			if(!blocks[i].isEmpty() && blocks[i].isOverFlowing())
+	private boolean isOutOfBoundaries(int rotation, int x, int y) {
+		int[] offsetsX = OFFSETS_X[type.ordinal()][rotation];
+		for(int i=0; i < BLOCKS; i++) {
+			int blockX = x + offsetsX[i];
+			if(blockX >= field.getWidth() || blockX < 0)
 				return true;
 		}
 		return false;
 	}
 	
-	private String checkForPositionErrors(String move) {
-		String error = String.format("Can't perform %s: ", move);
+	// returns the amount of rows the shape can fall before it lands
+	private int getDropDistance() {
+		int distance = Integer.MAX_VALUE;
+		for(int i=0; i < BLOCKS; i++) {
+			distance = Math.min(distance, field.getFreeCellsBelow(getBlockX(i), getBlockY(i)));
+		}
+		return distance;
+	}
+	
+	private String checkForPositionErrors(String move, int rotation, int x, int y) {
 		
 		if(move.equals("left") || move.equals("right")) {
 			
-			if(isOutOfBoundaries())
-				return error += "Piece is on the field boundary. Action changed to 'down'.";
-			if(hasCollision())
-				return error += "Other blocks are in the way. Action changed to 'down'.";
+			if(isOutOfBoundaries(rotation, x, y))
+				return getPositionError(move, SHIFT_OUT_OF_BOUNDS);
+			if(hasCollision(rotation, x, y))
+				return getPositionError(move, SHIFT_COLLISION);
 			
 		} else if(move.equals("turnright") || move.equals("turnleft")) {
 			
-			if(isOutOfBoundaries() || isBelowBottom())
-				return error += "Piece would move out of bounds. Move skipped.";
-			if(hasCollision())
-				return error += "Other blocks are in the way. Move skipped.";
+			if(isOutOfBoundaries(rotation, x, y) || isBelowBottom(rotation, x, y))
+				return getPositionError(move, TURN_OUT_OF_BOUNDS);
+			if(hasCollision(rotation, x, y))
+				return getPositionError(move, TURN_COLLISION);
 			
 		}
 		return "";
 	}
 	
+	private static String getPositionError(String move, String reason) {
+		return String.format("Can't perform %s: %s", move, reason);
+	}
+	
+	/**
+	 * @return : every error message the moves of a shape can return
+	 */
+	public static List<String> getPositionErrors() {
+		List<String> errors = new ArrayList<String>();
+		for(String move : SHIFTS) {
+			errors.add(getPositionError(move, SHIFT_OUT_OF_BOUNDS));
+			errors.add(getPositionError(move, SHIFT_COLLISION));
+		}
+		for(String move : TURNS) {
+			errors.add(getPositionError(move, TURN_OUT_OF_BOUNDS));
+			errors.add(getPositionError(move, TURN_COLLISION));
+		}
+		return errors;
+	}
+	
 	public boolean checkTSpin(Move lastMove1, Move lastMove2, Point lastLocation) {
+		return checkTSpin((lastMove1 == null) ? null : lastMove1.getType(), (lastMove2 == null) ? null : lastMove2.getType(),
+				lastLocation.x, lastLocation.y);
+	}
+	
+	/**
+	 * @param lastMove1 : type of the last move, null if there was none
+	 * @param lastMove2 : type of the second to last move, null if there was none
+	 * @param lastX : x of the location before the last move
+	 * @param lastY : y of the location before the last move
+	 * @return : true if the last moves were a T-spin
+	 */
+	public boolean checkTSpin(MoveType lastMove1, MoveType lastMove2, int lastX, int lastY) {
 		if(this.type != ShapeType.T)
 			return false;
 
@@ -281,47 +331,22 @@ public class Shape {
 			return false;
 		
 		// last move is turn or second to last move is turn
-		if(!(lastMove1.getType() == MoveType.TURNRIGHT || lastMove1.getType() == MoveType.TURNLEFT 
-				|| ((lastMove1.getType() == MoveType.DOWN || lastMove1.getType() == MoveType.DROP)
-				&& (lastMove2.getType() == MoveType.TURNLEFT || lastMove2.getType() == MoveType.TURNRIGHT)
-				&& (lastLocation.equals(this.location)))))
+		if(!(lastMove1 == MoveType.TURNRIGHT || lastMove1 == MoveType.TURNLEFT 
+				|| ((lastMove1 == MoveType.DOWN || lastMove1 == MoveType.DROP)
+				&& (lastMove2 == MoveType.TURNLEFT || lastMove2 == MoveType.TURNRIGHT)
+				&& (lastX == this.location.x && lastY == this.location.y))))
 			return false;
-
-//		// check if the T is 'locked' i.e. it cannot shift out of position
-//		Shape clone;
-//		
-//		// check right
-//		clone = this.clone();
-//		clone.location.x++;
-//		clone.setBlockLocations();
-//		if(!clone.isOutOfBoundaries() && !clone.hasCollision())
-//			return false;
-//		
-//		// check left
-//		clone = this.clone();
-//		clone.location.x--;
-//		clone.setBlockLocations();
-//		if(!clone.isOutOfBoundaries() && !clone.hasCollision())
-//			return false;
-//		
-//		// check up
-//		clone = this.clone();
-//		clone.location.y--;
-//		clone.setBlockLocations();
-//		if(!clone.hasCollision())
-//			return false;
 		
 		// check if 3/4 corners of the matrix are Blocks in the field
-		Cell[] corners = new Cell[4];
-		corners[0] = this.field.getCell(new Point(this.location.x, this.location.y));
-		corners[1] = this.field.getCell(new Point(this.location.x + 2, this.location.y));
-		corners[2] = this.field.getCell(new Point(this.location.x, this.location.y + 2));
-		corners[3] = this.field.getCell(new Point(this.location.x + 2, this.location.y + 2));
-		
 		int counter = 0;
-		for(int i = 0; i < corners.length; i++)
-			if(corners[i] != null && corners[i].isBlock())
-				counter++;
+		if(isBlockInField(this.location.x, this.location.y))
+			counter++;
+		if(isBlockInField(this.location.x + 2, this.location.y))
+			counter++;
+		if(isBlockInField(this.location.x, this.location.y + 2))
+			counter++;
+		if(isBlockInField(this.location.x + 2, this.location.y + 2))
+			counter++;
 		
 		if(counter == 3)
 			return true;
@@ -329,108 +354,65 @@ public class Shape {
 		return false;
 	}
 	
-	/////////////////////////////
-
-	private void setBlockLocations() {
-		for(int y=0; y < size; y++) {
-			for(int x=0; x < size; x++) {
-				if(shape[x][y].isShape()) {
-					shape[x][y].setLocation(location.x + x, location.y + y);
-				}
-			}
-		}
+	private boolean isBlockInField(int x, int y) {
+		return field.isInField(x, y) && field.getCellType(x, y) == CellType.BLOCK;
 	}
 	
+	/////////////////////////////
+	
 	private void freezeInField() {
-		for(int i=0; i < blocks.length; i++) {
-			field.setBlock(blocks[i].getLocation(), this.type);
+		for(int i=0; i < BLOCKS; i++) {
+			field.setBlock(getBlockX(i), getBlockY(i), this.type);
 		}
 		isFrozen = true;
 	}
 	
 	private void setShapeInField() {
-		for(int i=0; i < blocks.length; i++) {
-			field.setShape(blocks[i].getLocation(), this.type);
+		for(int i=0; i < BLOCKS; i++) {
+			field.setShape(getBlockX(i), getBlockY(i), this.type);
 		}
 	}
 	
-	// set shape in square box
-	private void setShape() {
-		switch(this.type) {
-			case I:
-				this.size = 4;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[0][1];
-				this.blocks[1] = this.shape[1][1];
-				this.blocks[2] = this.shape[2][1];
-				this.blocks[3] = this.shape[3][1];
-				break;
-			case J:
-				this.size = 3;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[0][0];
-				this.blocks[1] = this.shape[0][1];
-				this.blocks[2] = this.shape[1][1];
-				this.blocks[3] = this.shape[2][1];
-				break;
-			case L:
-				this.size = 3;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[2][0];
-				this.blocks[1] = this.shape[0][1];
-				this.blocks[2] = this.shape[1][1];
-				this.blocks[3] = this.shape[2][1];
-				break;
-			case O:
-				this.size = 2;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[0][0];
-				this.blocks[1] = this.shape[1][0];
-				this.blocks[2] = this.shape[0][1];
-				this.blocks[3] = this.shape[1][1];
-				break;
-			case S:
-				this.size = 3;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[1][0];
-				this.blocks[1] = this.shape[2][0];
-				this.blocks[2] = this.shape[0][1];
-				this.blocks[3] = this.shape[1][1];
-				break;
-			case T:
-				this.size = 3;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[1][0];
-				this.blocks[1] = this.shape[0][1];
-				this.blocks[2] = this.shape[1][1];
-				this.blocks[3] = this.shape[2][1];
-				break;
-			case Z:
-				this.size = 3;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[0][0];
-				this.blocks[1] = this.shape[1][0];
-				this.blocks[2] = this.shape[1][1];
-				this.blocks[3] = this.shape[2][1];
-				break;
-			default:
-				break;
+	// stores the offsets of all rotations, starting from given cells in the square box
+	private static void setOffsets(ShapeType type, int size, int[] offsetsX, int[] offsetsY) {
+		int[][] rotationsX = new int[ROTATIONS][];
+		int[][] rotationsY = new int[ROTATIONS][];
+		rotationsX[0] = offsetsX;
+		rotationsY[0] = offsetsY;
+		
+		// turning right moves the cell at (x, y) in the box to (size - y - 1, x)
+		for(int r=1; r < ROTATIONS; r++) {
+			rotationsX[r] = new int[BLOCKS];
+			rotationsY[r] = new int[BLOCKS];
+			for(int i=0; i < BLOCKS; i++) {
+				rotationsX[r][i] = size - rotationsY[r - 1][i] - 1;
+				rotationsY[r][i] = rotationsX[r - 1][i];
+			}
 		}
 		
-		// set type to SHAPE
-		for(int i=0; i < blocks.length; i++) {
-			this.blocks[i].setShape();
-		}
+		SIZES[type.ordinal()] = size;
+		OFFSETS_X[type.ordinal()] = rotationsX;
+		OFFSETS_Y[type.ordinal()] = rotationsY;
 	}
 	
-	private Cell[][] initializeShape() {
-		Cell[][] newShape = new Cell[size][size];
-		for(int y=0; y < size; y++) {
-			for(int x=0; x < size; x++) {
-				newShape[x][y] = new Cell(this.type);
-			}
-		}
-		return newShape;
+	public static int getSize(ShapeType type) {
+		return SIZES[type.ordinal()];
+	}
+	
+	public static int getBlockOffsetX(ShapeType type, int rotation, int block) {
+		return OFFSETS_X[type.ordinal()][rotation][block];
+	}
+	
+	public static int getBlockOffsetY(ShapeType type, int rotation, int block) {
+		return OFFSETS_Y[type.ordinal()][rotation][block];
+	}
+	
+	public int getBlockX(int block) {
+		return location.x + OFFSETS_X[type.ordinal()][rotation][block];
+	}
+	
+	public int getBlockY(int block) {
+		return location.y + OFFSETS_Y[type.ordinal()][rotation][block];
 	}
 	
 	public String getPositionString() {
@@ -441,6 +423,19 @@ public class Shape {
 		return this.type;
 	}
 	
+	public int getRotation() {
+		return this.rotation;
+	}
+	
+	public int getSize() {
+		return this.size;
+	}
+	
+	// returns true if the cells of the shape were placed in the field and not skipped
+	public boolean isInField() {
+		return this.isSpawned && !this.isSkipped;
+	}
+	
 	public boolean isFrozen() {
 		return this.isFrozen;
 	}
@@ -448,12 +443,4 @@ public class Shape {
 	public Point getLocation() {
 		return this.location;
 	}
-	
-//	public String toString() {
-//		StringBuffer output = new StringBuffer();
-//		for(int i=0; i < blocks.length; i++) {
-//			output.append(blocks[i].getLocation().x + "," + blocks[i].getLocation().y + " ");
-//		}
-//		return output.toString();
-//	}
 }
@@ -17,20 +17,20 @@
 
 package com.theaigames.blockbattle.field;
 
-import java.security.SecureRandom;
+import com.theaigames.game.RandomStream;
 
 public enum ShapeType {
 	I, J, L, O, S, T, Z, NONE, G; // G is garbage
 	
 	private static final ShapeType[] VALUES = ShapeType.values();
-	private static final SecureRandom RANDOM = new SecureRandom();
 	private static final int SIZE_SHAPES = VALUES.length - 2;
 	
 	/**
 	 * Gets a random ShapeType, NONE and G not included
+	 * @param random : the game's generator for the pieces
 	 * @return
 	 */
-	public static ShapeType getRandom() {
-		return VALUES[RANDOM.nextInt(SIZE_SHAPES)];
+	public static ShapeType getRandom(RandomStream random) {
+		return VALUES[random.nextInt(SIZE_SHAPES)];
 	}
 }
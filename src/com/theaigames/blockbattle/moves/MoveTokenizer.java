@@ -0,0 +1,103 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.moves;
+
+import com.theaigames.engine.io.IOPlayer;
+
+/**
+ * MoveTokenizer class
+ * 
+ * Reads a bot's comma separated moves in one pass over the response and
+ * stores them as MoveType ordinals in an array that is reused every round.
+ * Stops at the first empty move and after the maximum number of moves,
+ * like splitting the response on commas did.
+ */
+public class MoveTokenizer {
+	
+	private byte[] moves;
+	private int count;
+	private int maxMoves;
+	
+	/**
+	 * @param maxMoves : moves after this index are not stored
+	 */
+	public MoveTokenizer(int maxMoves) {
+		this.moves = new byte[maxMoves + 1];
+		this.count = 0;
+		this.maxMoves = maxMoves;
+	}
+	
+	/**
+	 * Replaces the stored moves with the moves in given response
+	 * @param input : the bot's response
+	 * @param bot : gets the warnings about the response
+	 * @return : the number of moves stored
+	 */
+	public int tokenize(String input, IOPlayer bot) {
+		int length = input.length();
+		int start = 0;
+		this.count = 0;
+		
+		for(int i = 0; start <= length; i++) {
+			int end = input.indexOf(',', start);
+			if(end < 0)
+				end = length;
+			
+			if(end == start && isOnlyCommas(input, start)) // trailing empty moves are ignored
+				break;
+			if(i > this.maxMoves) {
+				bot.outputEngineWarning(String.format("Maximum number of moves reached, only the first %s will be executed.", this.maxMoves));
+				break;
+			}
+			if(end == start)
+				break;
+			
+			MoveType moveType = MoveType.fromString(input, start, end);
+			if(moveType != null)
+				this.moves[this.count++] = (byte) moveType.ordinal();
+			else
+				bot.outputEngineWarning(String.format("Cannot parse input: %s", input.substring(start, end)));
+			
+			start = end + 1;
+		}
+		
+		return this.count;
+	}
+	
+	/**
+	 * @return : the number of moves stored
+	 */
+	public int getCount() {
+		return this.count;
+	}
+	
+	/**
+	 * @param index : index of the move
+	 * @return : the type of the move
+	 */
+	public MoveType getMoveType(int index) {
+		return MoveType.fromOrdinal(this.moves[index]);
+	}
+	
+	private boolean isOnlyCommas(String input, int start) {
+		for(int i = start; i < input.length(); i++)
+			if(input.charAt(i) != ',')
+				return false;
+		return start > 0;
+	}
+}
@@ -20,20 +20,61 @@ package com.theaigames.blockbattle.moves;
 public enum MoveType {
 	DOWN, LEFT, RIGHT, TURNLEFT, TURNRIGHT, DROP, SKIP;
 	
+	private static final MoveType[] VALUES = values();
+	
+	private final String lowerCaseName = name().toLowerCase();
+	
 	public static MoveType fromString(String move) {
 		
-		if(move != null) {
-			for(MoveType type : MoveType.values()) {
-				if(move.equalsIgnoreCase(type.toString()))
-					return type;
-			}
+		if(move != null)
+			return fromString(move, 0, move.length());
+		
+		return null;
+	}
+	
+	/**
+	 * Looks up the move type with given name, ignoring case, without
+	 * creating a substring
+	 * @param input : string that holds the name
+	 * @param start : index of the first character of the name
+	 * @param end : index after the last character of the name
+	 * @return : the move type, null if the name is unknown
+	 */
+	public static MoveType fromString(String input, int start, int end) {
+		MoveType type;
+		
+		// the length and one character are enough to tell the names apart
+		switch(end - start) {
+			case 4:
+				switch(Character.toLowerCase(input.charAt(start + 1))) {
+					case 'o': type = DOWN; break;
+					case 'e': type = LEFT; break;
+					case 'r': type = DROP; break;
+					case 'k': type = SKIP; break;
+					default: return null;
+				}
+				break;
+			case 5: type = RIGHT; break;
+			case 8: type = TURNLEFT; break;
+			case 9: type = TURNRIGHT; break;
+			default: return null;
 		}
 		
+		if(input.regionMatches(true, start, type.lowerCaseName, 0, end - start))
+			return type;
+		
 		return null;
 	}
 	
+	/**
+	 * @return : the move type with given ordinal
+	 */
+	public static MoveType fromOrdinal(int ordinal) {
+		return VALUES[ordinal];
+	}
+	
 	@Override
 	public String toString() {
-		return this.name().toLowerCase();
+		return this.lowerCaseName;
 	}
-}
\ No newline at end of file
+}
@@ -19,11 +19,13 @@ package com.theaigames.blockbattle.player;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 
 import com.theaigames.blockbattle.field.Field;
 import com.theaigames.blockbattle.field.Shape;
 import com.theaigames.blockbattle.field.ShapeType;
-import com.theaigames.blockbattle.moves.Move;
+import com.theaigames.blockbattle.moves.MoveTokenizer;
+import com.theaigames.blockbattle.moves.MoveType;
 import com.theaigames.engine.io.IOPlayer;
 import com.theaigames.game.player.AbstractPlayer;
 
@@ -31,7 +33,7 @@ public class Player extends AbstractPlayer {
 	
 	private Field field;
 	private Shape currentShape;
-	private ArrayList<Move> roundMoves;
+	private MoveTokenizer roundMoves;
 	private boolean performedTSpin;
 	private boolean fieldCleared;
 	private boolean usedSkip;
@@ -40,6 +42,7 @@ public class Player extends AbstractPlayer {
 	private int rowsRemoved;
 	private int skips;
 	private HashMap<Integer, ArrayList<PlayerState>> playedGame;
+	private RoundField roundField;
 	private Player opponent;
 
 	public Player(String name, IOPlayer bot, long maxTimeBank, long timePerMove, Field field) {
@@ -54,10 +57,22 @@ public class Player extends AbstractPlayer {
 		this.usedSkip = false;
 	}
 	
-	public void addPlayerState(int round, Move move, ShapeType nextShape) {
-		PlayerState moveResult = new PlayerState(round, move, this.combo, this.skips, this.rowPoints, nextShape, this.field.toString(false, true));
+	public void addPlayerState(int round, MoveType moveType, String illegalMove, ShapeType nextShape) {
 		
-		if(round >= this.playedGame.size()) 
+		// the field only changes between rounds, so store it once per round
+		if(this.roundField == null || this.roundField.getRound() != round) {
+			ShapeType shapeType = (this.currentShape == null) ? null : this.currentShape.getType();
+			this.roundField = new RoundField(round, this.field, shapeType, nextShape);
+		}
+		
+		PlayerState moveResult;
+		if(this.currentShape == null || this.currentShape.getLocation() == null)
+			moveResult = new PlayerState(this.roundField, moveType, illegalMove, false, 0, 0, 0, this.combo, this.skips, this.rowPoints);
+		else
+			moveResult = new PlayerState(this.roundField, moveType, illegalMove, this.currentShape.isInField(), this.currentShape.getRotation(),
+					this.currentShape.getLocation().x, this.currentShape.getLocation().y, this.combo, this.skips, this.rowPoints);
+		
+		if(!this.playedGame.containsKey(round))
 			this.playedGame.put(round, new ArrayList<PlayerState>());
 		
 		this.playedGame.get(round).add(moveResult);
@@ -96,11 +111,11 @@ public class Player extends AbstractPlayer {
 		return this.currentShape;
 	}
 	
-	public void setRoundMoves(ArrayList<Move> moves) {
+	public void setRoundMoves(MoveTokenizer moves) {
 		this.roundMoves = moves;
 	}
 	
-	public ArrayList<Move> getRoundMoves() {
+	public MoveTokenizer getRoundMoves() {
 		return this.roundMoves;
 	}
 	
@@ -154,4 +169,97 @@ public class Player extends AbstractPlayer {
 	public HashMap<Integer, ArrayList<PlayerState>> getPlayedGame() {
 		return this.playedGame;
 	}
+	
+	/**
+	 * Copies everything about this player that changes during the game,
+	 * the field is only copied if it changed since its last snapshot
+	 * @return : the snapshot, it never changes
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+	
+	/**
+	 * Sets this player back to given snapshot
+	 * @param snapshot : snapshot of a player with the same field size
+	 */
+	public void restore(Snapshot snapshot) {
+		this.field.restore(snapshot.field);
+		this.currentShape = (snapshot.currentShape == null) ? null : snapshot.currentShape.copy(this.field);
+		this.performedTSpin = snapshot.performedTSpin;
+		this.fieldCleared = snapshot.fieldCleared;
+		this.usedSkip = snapshot.usedSkip;
+		this.rowPoints = snapshot.rowPoints;
+		this.combo = snapshot.combo;
+		this.rowsRemoved = snapshot.rowsRemoved;
+		this.skips = snapshot.skips;
+		setTimeBank(snapshot.timeBank);
+	}
+	
+	/**
+	 * Removes the stored states of all rounds after given round, so the
+	 * game can be played again from there
+	 */
+	public void removePlayerStatesAfter(int round) {
+		Iterator<Integer> rounds = this.playedGame.keySet().iterator();
+		while(rounds.hasNext()) {
+			if(rounds.next() > round)
+				rounds.remove();
+		}
+		this.roundField = null;
+	}
+	
+	/**
+	 * Immutable copy of the state of a player, see snapshot()
+	 */
+	public static final class Snapshot {
+		
+		private final Field.Snapshot field;
+		private final Shape currentShape; // detached copy, never moved
+		private final boolean performedTSpin;
+		private final boolean fieldCleared;
+		private final boolean usedSkip;
+		private final int rowPoints;
+		private final int combo;
+		private final int rowsRemoved;
+		private final int skips;
+		private final long timeBank;
+		
+		private Snapshot(Player player) {
+			this.field = player.field.snapshot();
+			this.currentShape = (player.currentShape == null) ? null : player.currentShape.copy(null);
+			this.performedTSpin = player.performedTSpin;
+			this.fieldCleared = player.fieldCleared;
+			this.usedSkip = player.usedSkip;
+			this.rowPoints = player.rowPoints;
+			this.combo = player.combo;
+			this.rowsRemoved = player.rowsRemoved;
+			this.skips = player.skips;
+			this.timeBank = player.getTimeBank();
+		}
+		
+		public Field.Snapshot getField() {
+			return this.field;
+		}
+		
+		public int getRowPoints() {
+			return this.rowPoints;
+		}
+		
+		public int getCombo() {
+			return this.combo;
+		}
+		
+		public int getSkips() {
+			return this.skips;
+		}
+		
+		public int getRowsRemoved() {
+			return this.rowsRemoved;
+		}
+		
+		public long getTimeBank() {
+			return this.timeBank;
+		}
+	}
 }
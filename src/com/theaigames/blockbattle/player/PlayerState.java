@@ -17,41 +17,99 @@
 
 package com.theaigames.blockbattle.player;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.theaigames.blockbattle.field.Shape;
 import com.theaigames.blockbattle.field.ShapeType;
 import com.theaigames.blockbattle.moves.Move;
+import com.theaigames.blockbattle.moves.MoveType;
 
+/**
+ * PlayerState class
+ * 
+ * The state of a player after a move. Only the position of the shape and
+ * the move are stored, the field string is rendered from the RoundField
+ * when it is requested.
+ */
 public class PlayerState {
 	
-	private final Move move;
+	private static final MoveType[] MOVE_TYPES = MoveType.values();
+	private static final byte NO_MOVE = -1;
+	
+	// one shared copy of each illegal move message, the shape formats a new one for every illegal move
+	private static final Map<String, String> ILLEGAL_MOVES = createIllegalMoves();
+	
+	private final RoundField roundField;
+	private final byte moveType;
+	private final String illegalMove;
+	private final boolean shapeInField;
+	private final byte rotation;
+	private final short x;
+	private final short y;
 	private final int combo;
 	private final int skips;
 	private final int points;
-	private final ShapeType nextShape;
-	private final String fieldString;
-	private final int round;
 	
-	public PlayerState(int roundNumber, Move move, int combo, int skips, int points, ShapeType nextShape, String fieldString) {
-		this.round = roundNumber;
-		this.move = move;
+	public PlayerState(RoundField roundField, Move move, boolean shapeInField, int rotation, int x, int y, int combo, int skips, int points) {
+		this(roundField, (move == null) ? null : move.getType(), (move == null) ? "" : move.getIllegalMove(),
+				shapeInField, rotation, x, y, combo, skips, points);
+	}
+	
+	public PlayerState(RoundField roundField, MoveType moveType, String illegalMove, boolean shapeInField, int rotation, int x, int y, int combo, int skips, int points) {
+		this.roundField = roundField;
+		this.moveType = (moveType == null) ? NO_MOVE : (byte) moveType.ordinal();
+		this.illegalMove = getSharedIllegalMove(illegalMove);
+		this.shapeInField = shapeInField;
+		this.rotation = (byte) rotation;
+		this.x = (short) x;
+		this.y = (short) y;
 		this.combo = combo;
 		this.skips = skips;
 		this.points = points;
-		this.nextShape = nextShape;
-		this.fieldString = fieldString;
+	}
+	
+	private static Map<String, String> createIllegalMoves() {
+		Map<String, String> illegalMoves = new HashMap<String, String>();
+		illegalMoves.put("", "");
+		for(String illegalMove : Shape.getPositionErrors())
+			illegalMoves.put(illegalMove, illegalMove);
+		return Collections.unmodifiableMap(illegalMoves);
+	}
+	
+	// messages that are not in the table, e.g. read from a replay file, are kept as they are
+	private static String getSharedIllegalMove(String illegalMove) {
+		String shared = ILLEGAL_MOVES.get(illegalMove);
+		return (shared == null) ? illegalMove : shared;
 	}
 	
 	public int getRound() {
-		return this.round;
+		return this.roundField.getRound();
+	}
+	
+	/**
+	 * @return : the type of the move that led to this state, null for states at the start of a round
+	 */
+	public MoveType getMoveType() {
+		if(this.moveType == NO_MOVE)
+			return null;
+		return MOVE_TYPES[this.moveType];
 	}
 	
-	public Move getMove(){
-		return this.move;
+	/**
+	 * @return : the error message of the move, empty if the move was legal
+	 */
+	public String getIllegalMove() {
+		return this.illegalMove;
 	}
 	
 	public String getMoveString() {
-		if(this.move == null)
+		if(this.moveType == NO_MOVE)
 			return "";
-		return this.move.toString();
+		if(!this.illegalMove.isEmpty())
+			return this.illegalMove;
+		return getMoveType().toString();
 	}
 	
 	public int getCombo() {
@@ -67,10 +125,33 @@ public class PlayerState {
 	}
 	
 	public ShapeType getNextShape() {
-		return this.nextShape;
+		return this.roundField.getNextShape();
+	}
+	
+	public int getRotation() {
+		return this.rotation;
+	}
+	
+	public int getX() {
+		return this.x;
+	}
+	
+	public int getY() {
+		return this.y;
+	}
+	
+	public boolean isShapeInField() {
+		return this.shapeInField;
+	}
+	
+	public RoundField getRoundField() {
+		return this.roundField;
 	}
 	
+	/**
+	 * Renders the field of this state, as used by the visualizer
+	 */
 	public String getFieldString() {
-		return this.fieldString;
+		return this.roundField.getFieldString(this.shapeInField, this.rotation, this.x, this.y);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.player;
+
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.field.Shape;
+import com.theaigames.blockbattle.field.ShapeType;
+
+/**
+ * RoundField class
+ * 
+ * The field of a player at the start of a round, without the shape that
+ * is played that round. All PlayerStates of a round share this snapshot and
+ * only store where the shape is.
+ */
+public class RoundField {
+	
+	private final int round;
+	private final int width;
+	private final int height;
+	private final byte[] cells;
+	private final ShapeType shapeType;
+	private final ShapeType nextShape;
+	
+	public RoundField(int round, Field field, ShapeType shapeType, ShapeType nextShape) {
+		this.round = round;
+		this.width = field.getWidth();
+		this.height = field.getHeight();
+		this.cells = field.getPackedCells();
+		this.shapeType = shapeType;
+		this.nextShape = nextShape;
+	}
+	
+	// used for reading replays, cells are the visualizer characters of the cells without the shape
+	public RoundField(int round, int width, int height, byte[] cells, ShapeType shapeType, ShapeType nextShape) {
+		this.round = round;
+		this.width = width;
+		this.height = height;
+		this.cells = cells;
+		this.shapeType = shapeType;
+		this.nextShape = nextShape;
+	}
+	
+	/**
+	 * Renders the field string for the visualizer with the shape at given position
+	 * @param shapeInField : false if the shape is not drawn
+	 */
+	public String getFieldString(boolean shapeInField, int rotation, int x, int y) {
+		char[] output = new char[width * height * 2 - 1];
+		
+		for(int i=0; i < cells.length; i++) {
+			output[i * 2] = (char) cells[i];
+			if(i > 0)
+				output[i * 2 - 1] = (i % width == 0) ? ';' : ',';
+		}
+		
+		if(shapeInField && this.shapeType != null) {
+			char shapeChar = this.shapeType.name().charAt(0);
+			for(int i=0; i < Shape.BLOCKS; i++) {
+				int blockX = x + Shape.getBlockOffsetX(this.shapeType, rotation, i);
+				int blockY = y + Shape.getBlockOffsetY(this.shapeType, rotation, i);
+				if(blockX >= 0 && blockX < width && blockY >= 0 && blockY < height)
+					output[(blockY * width + blockX) * 2] = shapeChar;
+			}
+		}
+		
+		return new String(output);
+	}
+	
+	/**
+	 * @return : the visualizer character of given cell, without the shape
+	 */
+	public byte getCell(int x, int y) {
+		return this.cells[y * width + x];
+	}
+	
+	public int getWidth() {
+		return this.width;
+	}
+	
+	public int getHeight() {
+		return this.height;
+	}
+	
+	public int getRound() {
+		return this.round;
+	}
+	
+	public ShapeType getShapeType() {
+		return this.shapeType;
+	}
+	
+	public ShapeType getNextShape() {
+		return this.nextShape;
+	}
+}
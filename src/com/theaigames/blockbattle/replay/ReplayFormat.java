@@ -0,0 +1,102 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.replay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * ReplayFormat class
+ * 
+ * Constants and encoding helpers shared by the ReplayWriter and ReplayReader.
+ * 
+ * A replay file starts with a header:
+ *   int magic, short version, long seed, varint field width, varint field height,
+ *   varint time bank, varint time per move, varint player count, UTF player names
+ * followed by one record per round:
+ *   byte ROUND, varint round number, then for every player:
+ *     byte shape type, byte next shape type,
+ *     varint changed rows, for every changed row: varint row, packed cells,
+ *     varint states, for every state:
+ *       varint points, varint combo, varint skips, byte move type,
+ *       varint illegal move code (followed by UTF message the first time the code is used),
+ *       byte flags (bit 0: shape in field, bits 1-2: rotation), zigzag x, zigzag y
+ * and ends with:
+ *   byte END, zigzag index of the winner (-1 if there is none)
+ * 
+ * Packed cells store two cells per byte, as indexes in CELL_CHARS.
+ */
+final class ReplayFormat {
+	
+	static final int MAGIC = 0x42425250; // "BBRP"
+	static final short VERSION = 1;
+	
+	static final byte ROUND = 1;
+	static final byte END = 2;
+	
+	static final byte NONE = (byte) 0xFF;
+	static final int SHAPE_IN_FIELD = 1;
+	
+	static final String CELL_CHARS = "0123IJLOSTZG";
+	
+	private ReplayFormat() {}
+	
+	static int getPackedRowLength(int width) {
+		return (width + 1) / 2;
+	}
+	
+	static int getCellCode(byte cellChar) {
+		int code = CELL_CHARS.indexOf(cellChar);
+		if(code < 0)
+			throw new IllegalArgumentException(String.format("Can't store cell '%c' in a replay.", (char) cellChar));
+		return code;
+	}
+	
+	static byte getCellChar(int code) {
+		return (byte) CELL_CHARS.charAt(code);
+	}
+	
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		while((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+	
+	static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		for(int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed varint in replay.");
+	}
+	
+	static void writeSignedVarInt(DataOutput out, int value) throws IOException {
+		writeVarInt(out, (value << 1) ^ (value >> 31));
+	}
+	
+	static int readSignedVarInt(DataInput in) throws IOException {
+		int value = readVarInt(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,211 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.replay;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.moves.MoveType;
+import com.theaigames.blockbattle.player.PlayerState;
+import com.theaigames.blockbattle.player.RoundField;
+
+/**
+ * ReplayReader class
+ * 
+ * Reads a replay written by the ReplayWriter round by round, rebuilding the
+ * full field of every round from the changed rows.
+ */
+public class ReplayReader implements Closeable {
+	
+	private static final ShapeType[] SHAPE_TYPES = ShapeType.values();
+	private static final MoveType[] MOVE_TYPES = MoveType.values();
+	
+	private DataInputStream in;
+	private long seed;
+	private int fieldWidth;
+	private int fieldHeight;
+	private long timebank;
+	private long timePerMove;
+	private List<String> playerNames;
+	private List<byte[]> lastCells;
+	private List<String> illegalMoves;
+	private int winner;
+	private boolean ended;
+	
+	/**
+	 * Opens the replay and reads its header
+	 */
+	public ReplayReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		this.playerNames = new ArrayList<String>();
+		this.lastCells = new ArrayList<byte[]>();
+		this.illegalMoves = new ArrayList<String>();
+		this.illegalMoves.add("");
+		this.winner = -1;
+		this.ended = false;
+		
+		readHeader();
+	}
+	
+	private void readHeader() throws IOException {
+		if(in.readInt() != ReplayFormat.MAGIC)
+			throw new IOException("Not a blockbattle replay.");
+		
+		short version = in.readShort();
+		if(version != ReplayFormat.VERSION)
+			throw new IOException(String.format("Unsupported replay version %d.", version));
+		
+		this.seed = in.readLong();
+		this.fieldWidth = ReplayFormat.readVarInt(in);
+		this.fieldHeight = ReplayFormat.readVarInt(in);
+		this.timebank = ReplayFormat.readVarInt(in);
+		this.timePerMove = ReplayFormat.readVarInt(in);
+		
+		int playerCount = ReplayFormat.readVarInt(in);
+		for(int i=0; i < playerCount; i++) {
+			this.playerNames.add(in.readUTF());
+			
+			byte[] emptyField = new byte[fieldWidth * fieldHeight];
+			Arrays.fill(emptyField, ReplayFormat.getCellChar(0));
+			this.lastCells.add(emptyField);
+		}
+	}
+	
+	/**
+	 * Reads the next round
+	 * @return : the round, or null if the end of the game is reached
+	 */
+	public ReplayRound readRound() throws IOException {
+		if(this.ended)
+			return null;
+		
+		byte tag = in.readByte();
+		if(tag == ReplayFormat.END) {
+			this.winner = ReplayFormat.readSignedVarInt(in);
+			this.ended = true;
+			return null;
+		}
+		if(tag != ReplayFormat.ROUND)
+			throw new IOException(String.format("Unknown record %d in replay.", tag));
+		
+		int round = ReplayFormat.readVarInt(in);
+		ReplayRound replayRound = new ReplayRound(round, this.playerNames.size());
+		
+		for(int i=0; i < this.playerNames.size(); i++) {
+			RoundField roundField = readRoundField(round, i);
+			
+			int stateCount = ReplayFormat.readVarInt(in);
+			for(int s=0; s < stateCount; s++)
+				replayRound.getStates(i).add(readState(roundField));
+		}
+		
+		return replayRound;
+	}
+	
+	private RoundField readRoundField(int round, int player) throws IOException {
+		ShapeType shapeType = readShapeType();
+		ShapeType nextShape = readShapeType();
+		
+		byte[] cells = this.lastCells.get(player).clone();
+		
+		int changedRows = ReplayFormat.readVarInt(in);
+		for(int r=0; r < changedRows; r++) {
+			int y = ReplayFormat.readVarInt(in);
+			for(int x=0; x < fieldWidth; x += 2) {
+				int packed = in.readUnsignedByte();
+				cells[y * fieldWidth + x] = ReplayFormat.getCellChar(packed >> 4);
+				if(x + 1 < fieldWidth)
+					cells[y * fieldWidth + x + 1] = ReplayFormat.getCellChar(packed & 0x0F);
+			}
+		}
+		
+		this.lastCells.set(player, cells);
+		return new RoundField(round, fieldWidth, fieldHeight, cells, shapeType, nextShape);
+	}
+	
+	private PlayerState readState(RoundField roundField) throws IOException {
+		int points = ReplayFormat.readVarInt(in);
+		int combo = ReplayFormat.readVarInt(in);
+		int skips = ReplayFormat.readVarInt(in);
+		
+		byte move = in.readByte();
+		MoveType moveType = (move == ReplayFormat.NONE) ? null : MOVE_TYPES[move];
+		
+		int code = ReplayFormat.readVarInt(in);
+		if(code == this.illegalMoves.size()) // first use of this message
+			this.illegalMoves.add(in.readUTF());
+		String illegalMove = this.illegalMoves.get(code);
+		
+		int flags = in.readUnsignedByte();
+		int x = ReplayFormat.readSignedVarInt(in);
+		int y = ReplayFormat.readSignedVarInt(in);
+		
+		return new PlayerState(roundField, moveType, illegalMove, (flags & ReplayFormat.SHAPE_IN_FIELD) != 0,
+				flags >> 1, x, y, combo, skips, points);
+	}
+	
+	private ShapeType readShapeType() throws IOException {
+		byte shapeType = in.readByte();
+		if(shapeType == ReplayFormat.NONE)
+			return null;
+		return SHAPE_TYPES[shapeType];
+	}
+	
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+	
+	public long getSeed() {
+		return this.seed;
+	}
+	
+	public int getFieldWidth() {
+		return this.fieldWidth;
+	}
+	
+	public int getFieldHeight() {
+		return this.fieldHeight;
+	}
+	
+	public long getTimebank() {
+		return this.timebank;
+	}
+	
+	public long getTimePerMove() {
+		return this.timePerMove;
+	}
+	
+	public List<String> getPlayerNames() {
+		return this.playerNames;
+	}
+	
+	/**
+	 * @return : index of the winning player, -1 if there is no winner or the end is not read yet
+	 */
+	public int getWinner() {
+		return this.winner;
+	}
+}
@@ -0,0 +1,53 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.theaigames.blockbattle.player.PlayerState;
+
+/**
+ * ReplayRound class
+ * 
+ * All states of all players in one round of a replay.
+ */
+public class ReplayRound {
+	
+	private final int round;
+	private final List<List<PlayerState>> states;
+	
+	ReplayRound(int round, int playerCount) {
+		this.round = round;
+		this.states = new ArrayList<List<PlayerState>>();
+		for(int i=0; i < playerCount; i++)
+			this.states.add(new ArrayList<PlayerState>());
+	}
+	
+	public int getRound() {
+		return this.round;
+	}
+	
+	/**
+	 * @param player : index of the player in the replay
+	 * @return : the states of the player in this round, in the order they were played
+	 */
+	public List<PlayerState> getStates(int player) {
+		return this.states.get(player);
+	}
+}
@@ -0,0 +1,179 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.moves.MoveType;
+import com.theaigames.blockbattle.player.Player;
+import com.theaigames.blockbattle.player.PlayerState;
+import com.theaigames.blockbattle.player.RoundField;
+
+/**
+ * ReplayWriter class
+ * 
+ * Streams a game to a compact binary replay while it is played, see
+ * ReplayFormat for the layout. Of every round field only the rows
+ * that changed since the previous round are written.
+ */
+public class ReplayWriter implements Closeable {
+	
+	private DataOutputStream out;
+	private List<RoundField> lastRoundFields;
+	private Map<String, Integer> illegalMoveCodes;
+	
+	public ReplayWriter(OutputStream out) {
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.lastRoundFields = new ArrayList<RoundField>();
+		this.illegalMoveCodes = new HashMap<String, Integer>();
+		this.illegalMoveCodes.put("", 0);
+	}
+	
+	/**
+	 * Writes the header with the game settings, must be called before the first round is written
+	 * @param seed : seed of the game's random generator
+	 */
+	public void writeHeader(long seed, int fieldWidth, int fieldHeight, long timebank, long timePerMove, List<Player> players) throws IOException {
+		out.writeInt(ReplayFormat.MAGIC);
+		out.writeShort(ReplayFormat.VERSION);
+		out.writeLong(seed);
+		ReplayFormat.writeVarInt(out, fieldWidth);
+		ReplayFormat.writeVarInt(out, fieldHeight);
+		ReplayFormat.writeVarInt(out, (int) timebank);
+		ReplayFormat.writeVarInt(out, (int) timePerMove);
+		ReplayFormat.writeVarInt(out, players.size());
+		for(Player player : players) {
+			out.writeUTF(player.getName());
+			this.lastRoundFields.add(null);
+		}
+	}
+	
+	/**
+	 * Writes all stored states of given round for every player
+	 */
+	public void writeRound(int round, List<Player> players) throws IOException {
+		out.writeByte(ReplayFormat.ROUND);
+		ReplayFormat.writeVarInt(out, round);
+		
+		for(int i=0; i < players.size(); i++) {
+			List<PlayerState> states = players.get(i).getPlayedGame().get(round);
+			if(states == null || states.isEmpty())
+				throw new IllegalStateException(String.format("No states stored for %s in round %d.", players.get(i).getName(), round));
+			
+			RoundField roundField = states.get(0).getRoundField();
+			writeRoundField(roundField, this.lastRoundFields.get(i));
+			this.lastRoundFields.set(i, roundField);
+			
+			ReplayFormat.writeVarInt(out, states.size());
+			for(PlayerState state : states)
+				writeState(state);
+		}
+	}
+	
+	/**
+	 * Writes the end of the game
+	 * @param winner : index of the winning player, -1 if there is no winner
+	 */
+	public void writeEnd(int winner) throws IOException {
+		out.writeByte(ReplayFormat.END);
+		ReplayFormat.writeSignedVarInt(out, winner);
+		out.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+	
+	private void writeRoundField(RoundField roundField, RoundField lastRoundField) throws IOException {
+		writeShapeType(roundField.getShapeType());
+		writeShapeType(roundField.getNextShape());
+		
+		int width = roundField.getWidth();
+		int height = roundField.getHeight();
+		
+		int changedRows = 0;
+		for(int y=0; y < height; y++)
+			if(isRowChanged(roundField, lastRoundField, y))
+				changedRows++;
+		
+		ReplayFormat.writeVarInt(out, changedRows);
+		for(int y=0; y < height; y++) {
+			if(!isRowChanged(roundField, lastRoundField, y))
+				continue;
+			
+			ReplayFormat.writeVarInt(out, y);
+			for(int x=0; x < width; x += 2) {
+				int packed = ReplayFormat.getCellCode(roundField.getCell(x, y)) << 4;
+				if(x + 1 < width)
+					packed |= ReplayFormat.getCellCode(roundField.getCell(x + 1, y));
+				out.writeByte(packed);
+			}
+		}
+	}
+	
+	// compares with the previous round field, or with an empty field if there is none
+	private boolean isRowChanged(RoundField roundField, RoundField lastRoundField, int y) {
+		for(int x=0; x < roundField.getWidth(); x++) {
+			byte last = (lastRoundField == null) ? ReplayFormat.getCellChar(0) : lastRoundField.getCell(x, y);
+			if(roundField.getCell(x, y) != last)
+				return true;
+		}
+		return false;
+	}
+	
+	private void writeState(PlayerState state) throws IOException {
+		ReplayFormat.writeVarInt(out, state.getPoints());
+		ReplayFormat.writeVarInt(out, state.getCombo());
+		ReplayFormat.writeVarInt(out, state.getSkips());
+		
+		MoveType moveType = state.getMoveType();
+		out.writeByte(moveType == null ? ReplayFormat.NONE : (byte) moveType.ordinal());
+		
+		String illegalMove = state.getIllegalMove();
+		Integer code = this.illegalMoveCodes.get(illegalMove);
+		if(code == null) { // first time this message is used, write it out
+			code = this.illegalMoveCodes.size();
+			this.illegalMoveCodes.put(illegalMove, code);
+			ReplayFormat.writeVarInt(out, code);
+			out.writeUTF(illegalMove);
+		} else {
+			ReplayFormat.writeVarInt(out, code);
+		}
+		
+		int flags = state.getRotation() << 1;
+		if(state.isShapeInField())
+			flags |= ReplayFormat.SHAPE_IN_FIELD;
+		out.writeByte(flags);
+		ReplayFormat.writeSignedVarInt(out, state.getX());
+		ReplayFormat.writeSignedVarInt(out, state.getY());
+	}
+	
+	private void writeShapeType(ShapeType shapeType) throws IOException {
+		out.writeByte(shapeType == null ? ReplayFormat.NONE : (byte) shapeType.ordinal());
+	}
+}
@@ -18,7 +18,12 @@
 
 package com.theaigames.engine;
 
+import com.theaigames.engine.io.BotIOMultiplexer;
+import com.theaigames.engine.io.BotProcessPool;
 import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.InProcessBot;
+import com.theaigames.engine.io.InProcessPlayer;
+import com.theaigames.engine.metrics.EngineEvents;
 import java.io.IOException;
 import java.util.ArrayList;
 /**
@@ -36,25 +41,66 @@ public class Engine {
     private boolean isRunning; // Boolean representing current engine running state
     private Logic logic; // Class implementing Logic interface; handles all data
     private ArrayList<IOPlayer> players; // ArrayList containing player handlers
+    private BotIOMultiplexer multiplexer; // reads the output of the bot processes, null for a thread per stream
+    private BotProcessPool processPool; // hands out running bot processes, null to start a process for every bot
     
     // Engine constructor 
     public Engine() {
+        this(null);
+    }
+    
+    /**
+     * @param multiplexer : reads the output of all bot processes, if null
+     * every bot gets its own reader threads
+     */
+    public Engine(BotIOMultiplexer multiplexer) {
+        this(multiplexer, null);
+    }
+    
+    /**
+     * @param multiplexer : reads the output of all bot processes, if null
+     * every bot gets its own reader threads
+     * @param processPool : pool the bot processes are taken from, if null
+     * every bot gets a new process that is stopped after the game
+     */
+    public Engine(BotIOMultiplexer multiplexer, BotProcessPool processPool) {
         this.isRunning = false;
         this.players = new ArrayList<IOPlayer>();
+        this.multiplexer = multiplexer;
+        this.processPool = processPool;
     }
     
     /**
      * Start up the bot process and add the player to the game
-     * @param command : command to start a bot process
+     * @param command : command to start a bot process, or InProcessPlayer.COMMAND_PREFIX
+     * followed by the class name of an InProcessBot to run the bot in this JVM
      */
     public void addPlayer(String command, String idString) throws IOException {
+    	
+    	if(InProcessPlayer.isInProcessCommand(command)) {
+    		try {
+    			addPlayer(InProcessPlayer.createBot(command), idString);
+    		} catch (ReflectiveOperationException | ClassCastException ex) {
+    			throw new IOException("Can't create in-process bot: " + command, ex);
+    		}
+    		System.out.println(command);
+    		return;
+    	}
+    	
+    	if(this.processPool != null) {
+    		IOPlayer player = this.processPool.acquire(command, idString);
+    		System.out.println(command);
+    		this.players.add(player);
+    		player.run();
+    		return;
+    	}
 
         // Create new process
     	Process process = Runtime.getRuntime().exec(command);
     	System.out.println(command);
 
         // Attach IO to process
-        IOPlayer player = new IOPlayer(process, idString);
+        IOPlayer player = new IOPlayer(process, idString, this.multiplexer);
         
         // Add player
         this.players.add(player);
@@ -63,6 +109,22 @@ public class Engine {
         player.run();
     }
     
+    /**
+     * Add a bot that runs in this JVM to the game
+     * @param bot : the bot
+     */
+    public void addPlayer(InProcessBot bot, String idString) {
+    	
+    	// Attach IO to bot
+    	IOPlayer player = new InProcessPlayer(bot, idString);
+    	
+    	// Add player
+    	this.players.add(player);
+    	
+    	// Start running
+    	player.run();
+    }
+    
     /**
      * Sets the game's logic
      * @param logic
@@ -105,7 +167,9 @@ public class Engine {
         	round++;
 
             // Play a round
+            Object event = EngineEvents.beginRound();
             this.logic.playRound(round);
+            EngineEvents.endRound(event, round);
             
             // Check if win condition has been met
             if (this.hasEnded()) {
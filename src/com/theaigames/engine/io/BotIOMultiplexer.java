@@ -0,0 +1,315 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * BotIOMultiplexer class
+ *
+ * Reads the stdout and stderr of many bot processes on one thread, instead
+ * of two InputStreamGobbler threads per bot. Process pipes can't be put in
+ * a Selector, so the thread polls how many bytes each stream has available
+ * and only reads those, which never blocks. Lines are framed in reusable
+ * buffers and handed to the owning IOPlayer like the gobblers do.
+ *
+ * A stream is read until it fails, the bot is stopped or the process has
+ * exited and everything it wrote was read, an unterminated last line is
+ * handed over at that point. The thread never waits for the end of a
+ * stream: a child of the bot could keep the pipe open after the bot exits,
+ * and that would stop the output of all other bots.
+ *
+ * When no stream has data the thread parks, for a little longer every time
+ * up to MAX_IDLE_NANOS, so a response can be seen that much later. The cap
+ * is kept well below the response times the engine measures. Without any
+ * registered streams it parks until the next one is registered.
+ */
+public class BotIOMultiplexer implements Runnable {
+
+	private static final long MIN_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+	private static final long MAX_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final int MAX_DATA = 1000000; // catches bots that return way too much (infinite loop)
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	private static BotIOMultiplexer shared;
+
+	private CopyOnWriteArrayList<BotStreams> bots;
+	private byte[] readBuffer;
+	private Thread thread;
+
+	public BotIOMultiplexer(String name) {
+		this.bots = new CopyOnWriteArrayList<BotStreams>();
+		this.readBuffer = new byte[READ_BUFFER_SIZE];
+		this.thread = new Thread(this, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * @return : the multiplexer shared by all games in this JVM, started on first use
+	 */
+	public static synchronized BotIOMultiplexer getShared() {
+		if(shared == null)
+			shared = new BotIOMultiplexer("bot-io");
+		return shared;
+	}
+
+	/**
+	 * Starts reading the output of given bot process
+	 * @param process : the bot process
+	 * @param player : player the responses are handed to, null to throw them
+	 * away until a player is set on the returned streams
+	 * @return : the bot's streams, close them when the bot is stopped
+	 */
+	public BotStreams register(Process process, IOPlayer player) {
+		BotStreams streams = new BotStreams(process, player);
+		this.bots.add(streams);
+		LockSupport.unpark(this.thread);
+		return streams;
+	}
+
+	/**
+	 * Keeps reading from all registered streams
+	 */
+	@Override
+	public void run() {
+		long idleNanos = MIN_IDLE_NANOS;
+
+		while(true) {
+			if(this.bots.isEmpty()) {
+				LockSupport.park(this);
+				idleNanos = MIN_IDLE_NANOS;
+				continue;
+			}
+
+			boolean readAny = false;
+
+			for(BotStreams streams : this.bots) {
+				if(streams.read(this.readBuffer))
+					readAny = true;
+			}
+
+			if(readAny) {
+				idleNanos = MIN_IDLE_NANOS;
+			} else {
+				LockSupport.parkNanos(idleNanos);
+				idleNanos = Math.min(idleNanos * 2, MAX_IDLE_NANOS);
+			}
+		}
+	}
+
+	/**
+	 * The stdout and stderr of one bot process
+	 */
+	public class BotStreams {
+
+		private LineReader output;
+		private LineReader error;
+
+		private BotStreams(Process process, IOPlayer player) {
+			this.output = new LineReader(process, process.getInputStream(), player);
+			this.error = new LineReader(process, process.getErrorStream(), null);
+		}
+
+		/**
+		 * @return : true if anything was read
+		 */
+		private boolean read(byte[] readBuffer) {
+			boolean readAny = this.output.read(readBuffer);
+			readAny |= this.error.read(readBuffer);
+
+			if(this.output.isClosed() && this.error.isClosed())
+				close();
+
+			return readAny;
+		}
+
+		/**
+		 * Stop reading from this bot
+		 */
+		public void close() {
+			bots.remove(this);
+		}
+
+		/**
+		 * Hands the responses to given player from now on
+		 * @param player : the player, null to throw them away
+		 */
+		void setPlayer(IOPlayer player) {
+			this.output.player = player;
+		}
+		
+		/**
+		 * Forgets the data read so far
+		 */
+		void clearData() {
+			this.output.data.setLength(0);
+			this.error.data.setLength(0);
+		}
+		
+		/**
+		 * @return : all the data read from stdout
+		 */
+		public String getStdout() {
+			return this.output.getData();
+		}
+
+		/**
+		 * @return : all the data read from stderr
+		 */
+		public String getStderr() {
+			return this.error.getData();
+		}
+		
+		/**
+		 * @return : number of characters read from stdout
+		 */
+		public int getStdoutSize() {
+			return this.output.data.length();
+		}
+		
+		/**
+		 * @return : number of characters read from stderr
+		 */
+		public int getStderrSize() {
+			return this.error.data.length();
+		}
+	}
+
+	/**
+	 * Splits the bytes of one stream into lines the way BufferedReader.readLine does
+	 */
+	private static class LineReader {
+
+		private Process process;
+		private InputStream inputStream;
+		private volatile IOPlayer player; // null for the error stream and while nobody takes the responses
+		private StringBuffer data;
+		private byte[] line;
+		private int lineLength;
+		private long lineStartTime; // System.nanoTime() at which the first byte of the line was read
+		private boolean lastWasCarriageReturn;
+		private boolean closed;
+
+		private LineReader(Process process, InputStream inputStream, IOPlayer player) {
+			this.process = process;
+			this.inputStream = inputStream;
+			this.player = player;
+			this.data = new StringBuffer();
+			this.line = new byte[256];
+			this.lineLength = 0;
+			this.lastWasCarriageReturn = false;
+			this.closed = false;
+		}
+
+		/**
+		 * Reads the bytes that are available without blocking. available()
+		 * doesn't tell the end of the stream apart from no data, so the
+		 * stream ends when the process had exited and nothing is left.
+		 * @return : true if anything was read
+		 */
+		private boolean read(byte[] readBuffer) {
+			if(this.closed)
+				return false;
+
+			try {
+				boolean alive = this.process.isAlive(); // before available(), so all output of an exited process is counted
+				int available = this.inputStream.available();
+				if(available <= 0) {
+					if(!alive) {
+						if(this.lineLength > 0)
+							endLine();
+						close();
+					}
+					return false;
+				}
+
+				int length = this.inputStream.read(readBuffer, 0, Math.min(available, readBuffer.length));
+				if(length < 0) {
+					if(this.lineLength > 0)
+						endLine();
+					close();
+					return false;
+				}
+
+				for(int i = 0; i < length; i++)
+					addByte(readBuffer[i]);
+
+				return length > 0;
+			} catch (IOException e) {
+				close();
+				return false;
+			}
+		}
+
+		private void addByte(byte b) {
+			if(b == '\n' && this.lastWasCarriageReturn) { // second half of \r\n
+				this.lastWasCarriageReturn = false;
+				return;
+			}
+			this.lastWasCarriageReturn = (b == '\r');
+			
+			if(this.lineLength == 0)
+				this.lineStartTime = System.nanoTime();
+
+			if(b == '\n' || b == '\r') {
+				endLine();
+				return;
+			}
+
+			if(this.lineLength == this.line.length) {
+				if(this.line.length >= MAX_DATA)
+					return;
+				byte[] line = new byte[this.line.length * 2];
+				System.arraycopy(this.line, 0, line, 0, this.lineLength);
+				this.line = line;
+			}
+			this.line[this.lineLength++] = b;
+		}
+
+		private void endLine() {
+			String lastLine = new String(this.line, 0, this.lineLength, Charset.defaultCharset());
+			this.lineLength = 0;
+
+			if (!lastLine.contains("VM warning") && this.data.length() < MAX_DATA) {
+				IOPlayer player = this.player;
+				if (player != null)
+					player.setResponse(lastLine, this.lineStartTime);
+				this.data.append(lastLine + "\n");
+			}
+		}
+
+		private void close() {
+			this.closed = true;
+			try { this.inputStream.close(); } catch (IOException e) {}
+		}
+
+		private boolean isClosed() {
+			return this.closed;
+		}
+
+		private String getData() {
+			return this.data.toString();
+		}
+	}
+}
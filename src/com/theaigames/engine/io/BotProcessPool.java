@@ -0,0 +1,331 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.engine.io;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BotProcessPool class
+ * 
+ * Keeps bot processes running after a game, so the next game with the same
+ * bot command gets a process that has already started up and warmed up
+ * its JIT instead of a new one. Before every game after its first, the bot
+ * gets the line "settings new_game [n]", with n the number of the game the
+ * process is about to play. The bot should forget everything about the
+ * previous game then, the usual settings follow. Only use the pool for bots
+ * that handle this.
+ * 
+ * A process is stopped instead of reused when it had a time-out in its
+ * last game (it might still be busy with an old request), when writing to
+ * it failed, when it has exited, or when there are already maxIdle idle
+ * processes for its command. The next game then starts a new one.
+ */
+public class BotProcessPool {
+	
+	private static final byte[] NEW_GAME = "new_game".getBytes(StandardCharsets.US_ASCII);
+	
+	private final BotIOMultiplexer multiplexer;
+	private final int maxIdle;
+	private final Map<String, Deque<PooledProcess>> idle; // idle processes by command
+	private boolean shutdown;
+	
+	/**
+	 * @param multiplexer : reads the output of the bot processes, every
+	 * process gets its own reader threads if this is null
+	 * @param maxIdle : maximum number of idle processes kept for one command
+	 */
+	public BotProcessPool(BotIOMultiplexer multiplexer, int maxIdle) {
+		this.multiplexer = multiplexer;
+		this.maxIdle = maxIdle;
+		this.idle = new HashMap<String, Deque<PooledProcess>>();
+		this.shutdown = false;
+	}
+	
+	/**
+	 * Takes an idle process for given command, or starts one if there is none.
+	 * Finishing the returned player hands the process back to the pool.
+	 * @param command : command to start the bot process
+	 * @param idString : String representation of the bot ID
+	 * @return : player talking to the process, call run() before using it
+	 * @throws IOException
+	 */
+	public IOPlayer acquire(String command, String idString) throws IOException {
+		PooledProcess process = takeIdle(command);
+		if(process == null)
+			process = new PooledProcess(command, Runtime.getRuntime().exec(command), this.multiplexer);
+		
+		return new PooledPlayer(this, process, idString);
+	}
+	
+	/**
+	 * Stops all idle processes, processes that are handed back later are
+	 * stopped as well
+	 */
+	public void shutdown() {
+		List<PooledProcess> processes = new ArrayList<PooledProcess>();
+		synchronized(this) {
+			this.shutdown = true;
+			for(Deque<PooledProcess> commandProcesses : this.idle.values())
+				processes.addAll(commandProcesses);
+			this.idle.clear();
+		}
+		
+		for(PooledProcess process : processes)
+			process.destroy();
+	}
+	
+	/**
+	 * @return : number of idle processes for given command
+	 */
+	public synchronized int getIdleCount(String command) {
+		Deque<PooledProcess> processes = this.idle.get(command);
+		return (processes == null) ? 0 : processes.size();
+	}
+	
+	private PooledProcess takeIdle(String command) {
+		while(true) {
+			PooledProcess process;
+			synchronized(this) {
+				if(this.shutdown)
+					throw new IllegalStateException("The bot process pool has been shut down.");
+				Deque<PooledProcess> processes = this.idle.get(command);
+				process = (processes == null) ? null : processes.pollFirst();
+			}
+			
+			if(process == null || process.isAlive())
+				return process;
+			process.destroy(); // exited while idle
+		}
+	}
+	
+	private void release(PooledProcess process, boolean reusable) {
+		process.detach();
+		
+		if(reusable && process.isAlive()) {
+			synchronized(this) {
+				Deque<PooledProcess> processes = this.idle.get(process.command);
+				if(processes == null) {
+					processes = new ArrayDeque<PooledProcess>();
+					this.idle.put(process.command, processes);
+				}
+				if(!this.shutdown && processes.size() < this.maxIdle) {
+					processes.addFirst(process); // the most recently used process is the warmest
+					return;
+				}
+			}
+		}
+		process.destroy();
+	}
+	
+	/**
+	 * A bot process and its IO, which outlive the games it plays
+	 */
+	private static class PooledProcess {
+		
+		private final String command;
+		private final Process process;
+		private final OutputStream inputStream;
+		private InputStreamGobbler outputGobbler;
+		private InputStreamGobbler errorGobbler;
+		private BotIOMultiplexer.BotStreams streams;
+		private int games; // number of games the process has been handed out for
+		private boolean broken; // writing to the process failed
+		
+		private PooledProcess(String command, Process process, BotIOMultiplexer multiplexer) {
+			this.command = command;
+			this.process = process;
+			this.inputStream = new BufferedOutputStream(process.getOutputStream(), 8192);
+			this.games = 0;
+			this.broken = false;
+			
+			// the output is thrown away until a player is attached
+			if(multiplexer != null) {
+				this.streams = multiplexer.register(process, null);
+			} else {
+				this.outputGobbler = new InputStreamGobbler(process.getInputStream(), null, "output");
+				this.errorGobbler = new InputStreamGobbler(process.getErrorStream(), null, "error");
+				this.outputGobbler.start();
+				this.errorGobbler.start();
+			}
+		}
+		
+		/**
+		 * Hands the output of the process to given player from now on
+		 * @return : number of the game the player plays, starting at 1
+		 */
+		private int attach(IOPlayer player) {
+			if(this.streams != null) {
+				this.streams.clearData();
+				this.streams.setPlayer(player);
+			} else {
+				this.outputGobbler.clearData();
+				this.errorGobbler.clearData();
+				this.outputGobbler.setPlayer(player);
+			}
+			return ++this.games;
+		}
+		
+		private void detach() {
+			if(this.streams != null)
+				this.streams.setPlayer(null);
+			else
+				this.outputGobbler.setPlayer(null);
+		}
+		
+		private void write(ProtocolEncoder line, boolean flush) throws IOException {
+			try {
+				this.inputStream.write(line.getBuffer(), 0, line.getLength());
+				this.inputStream.write('\n');
+				if(flush)
+					this.inputStream.flush();
+			} catch (IOException e) {
+				this.broken = true;
+				throw e;
+			}
+		}
+		
+		private void flush() throws IOException {
+			try {
+				this.inputStream.flush();
+			} catch (IOException e) {
+				this.broken = true;
+				throw e;
+			}
+		}
+		
+		private boolean isAlive() {
+			return !this.broken && this.process.isAlive();
+		}
+		
+		private String getStdout() {
+			return (this.streams != null) ? this.streams.getStdout() : this.outputGobbler.getData();
+		}
+		
+		private String getStderr() {
+			return (this.streams != null) ? this.streams.getStderr() : this.errorGobbler.getData();
+		}
+		
+		private int getStdoutSize() {
+			return (this.streams != null) ? this.streams.getStdoutSize() : this.outputGobbler.getDataSize();
+		}
+		
+		private int getStderrSize() {
+			return (this.streams != null) ? this.streams.getStderrSize() : this.errorGobbler.getDataSize();
+		}
+		
+		/**
+		 * Stops the process and its IO
+		 */
+		private void destroy() {
+			try { this.inputStream.close(); } catch (IOException e) {}
+			if(this.streams != null) {
+				this.streams.close();
+			} else {
+				this.outputGobbler.finish();
+				this.errorGobbler.finish();
+			}
+			
+			this.process.destroy();
+			try { this.process.waitFor(); } catch (InterruptedException ex) {}
+		}
+	}
+	
+	/**
+	 * Plays one game with a pooled process, finishing it hands the process
+	 * back to the pool instead of stopping it
+	 */
+	private static class PooledPlayer extends IOPlayer {
+		
+		private final BotProcessPool pool;
+		private final PooledProcess process;
+		private final int game;
+		private String stdout; // the output of this game, kept when the process is handed back
+		private String stderr;
+		
+		private PooledPlayer(BotProcessPool pool, PooledProcess process, String idString) {
+			super(idString);
+			this.pool = pool;
+			this.process = process;
+			this.game = process.attach(this);
+		}
+		
+		@Override
+		protected void sendToBot(ProtocolEncoder line) throws IOException {
+			this.process.write(line, !isBatching());
+		}
+		
+		@Override
+		protected void flushToBot() throws IOException {
+			this.process.flush();
+		}
+		
+		@Override
+		protected void stopBot() {
+			this.stdout = this.process.getStdout();
+			this.stderr = this.process.getStderr();
+			this.pool.release(this.process, getErrorCounter() == 0);
+		}
+		
+		@Override
+		public Process getProcess() {
+			return this.process.process;
+		}
+		
+		@Override
+		public String getStdout() {
+			return (this.stdout != null) ? this.stdout : this.process.getStdout();
+		}
+		
+		@Override
+		public String getStderr() {
+			return (this.stderr != null) ? this.stderr : this.process.getStderr();
+		}
+		
+		@Override
+		public int getStdoutSize() {
+			return (this.stdout != null) ? this.stdout.length() : this.process.getStdoutSize();
+		}
+		
+		@Override
+		public int getStderrSize() {
+			return (this.stderr != null) ? this.stderr.length() : this.process.getStderrSize();
+		}
+		
+		@Override
+		/**
+		 * Tells a process that played before that a new game starts
+		 */
+		public void run() {
+			if(this.game > 1) {
+				try {
+					writeToBot(startLine().append(ProtocolEncoder.SETTINGS).append(NEW_GAME).append(this.game));
+				} catch (IOException e) {} // writeToBot handles failed writes
+			}
+		}
+	}
+}
@@ -17,39 +17,87 @@
 
 package com.theaigames.engine.io;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.theaigames.engine.metrics.EngineEvents;
+import com.theaigames.engine.metrics.LatencyHistogram;
 
 /**
  * IOPlayer class
  * 
- * Handles the communication between the bot process and the engine
+ * Handles the communication between the bot process and the engine.
+ * Subclasses can talk to a bot in another way by overriding sendToBot,
+ * stopBot, run, getStdout and getStderr.
  * 
  * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
  */
 public class IOPlayer implements Runnable {
     
     private Process process;
-    private OutputStreamWriter inputStream;
+    private OutputStream inputStream;
+    private ProtocolEncoder encoder; // holds the line that is written to the bot
     private InputStreamGobbler outputGobbler;
     private InputStreamGobbler errorGobbler;
+    private BotIOMultiplexer multiplexer;
+    private BotIOMultiplexer.BotStreams streams; // the bot's output when read by the multiplexer
     private StringBuilder dump;
     private int errorCounter;
     private boolean finished;
+    private boolean batching; // lines are held until flushBatch is called
     private String idString;
     
     private final int MAX_ERRORS = 2;
     private final String NULL_MOVE = "no_moves";
     
-    public String response;
+    private BlockingQueue<String> responses; // holds the bot's latest response until it is taken
+    private volatile long latestResponseTime; // System.nanoTime() of the latest response
+    private volatile long latestFirstByteTime; // System.nanoTime() of the first byte of the latest response
+    private long responseTime; // System.nanoTime() of the last taken response, -1 if there was none
+    private LatencyHistogram responseLatency; // from move request until the engine has the response
+    private LatencyHistogram firstByteLatency; // from move request until the first byte of the response
     
     public IOPlayer(Process process, String idString) {
-        this.inputStream = new OutputStreamWriter(process.getOutputStream());
-    	this.outputGobbler = new InputStreamGobbler(process.getInputStream(), this, "output");
-    	this.errorGobbler = new InputStreamGobbler(process.getErrorStream(), this, "error");
+    	this(process, idString, null);
+    }
+    
+    /**
+     * @param multiplexer : reads the bot's output, the bot gets its own
+     * reader threads if this is null
+     */
+    public IOPlayer(Process process, String idString, BotIOMultiplexer multiplexer) {
+        this.inputStream = new BufferedOutputStream(process.getOutputStream(), 8192);
+        if(multiplexer == null) {
+        	this.outputGobbler = new InputStreamGobbler(process.getInputStream(), this, "output");
+        	this.errorGobbler = new InputStreamGobbler(process.getErrorStream(), this, "error");
+        }
+        this.multiplexer = multiplexer;
         this.process = process;
         this.idString = idString;
+        this.encoder = new ProtocolEncoder();
         this.dump = new StringBuilder();
+        this.responses = new LinkedBlockingQueue<String>();
+        this.responseLatency = new LatencyHistogram();
+        this.firstByteLatency = new LatencyHistogram();
+        this.errorCounter = 0;
+        this.finished = false;
+    }
+    
+    /**
+     * Constructor for subclasses that don't run the bot in a process
+     * @param idString : String representation of the bot ID
+     */
+    protected IOPlayer(String idString) {
+        this.idString = idString;
+        this.encoder = new ProtocolEncoder();
+        this.dump = new StringBuilder();
+        this.responses = new LinkedBlockingQueue<String>();
+        this.responseLatency = new LatencyHistogram();
+        this.firstByteLatency = new LatencyHistogram();
         this.errorCounter = 0;
         this.finished = false;
     }
@@ -60,61 +108,215 @@ public class IOPlayer implements Runnable {
      * @throws IOException
      */
     public void writeToBot(String line) throws IOException {
+        writeToBot(startLine().append(line));
+    }
+    
+    /**
+     * Empties the encoder that holds the next line for the bot and returns
+     * it, write the line with writeToBot when it is complete
+     * @return : the encoder
+     */
+    public ProtocolEncoder startLine() {
+    	return this.encoder.reset();
+    }
+    
+    /**
+     * Write an encoded line to the bot
+     * @param line : the encoded line
+     * @throws IOException
+     */
+    public void writeToBot(ProtocolEncoder line) throws IOException {
         if (!this.finished) {
+            Object event = EngineEvents.beginBotWrite();
             try {
-        		this.inputStream.write(line + "\n");
-        		this.inputStream.flush();
+        		sendToBot(line);
             } catch(IOException e) {
                 System.err.println("Writing to bot failed");
             }
-            addToDump(line);
+            EngineEvents.endBotWrite(event, this.idString, line.getLength() + 1);
+            line.appendTo(this.dump);
+            this.dump.append('\n');
         }
     }
     
     /**
-     * Wait's until the this.response has a value and then returns that value
+     * Holds the lines written to the bot from now on, until flushBatch is
+     * called, so the bot gets them all at once
+     */
+    public void startBatch() {
+    	this.batching = true;
+    }
+    
+    /**
+     * Sends all lines held since startBatch to the bot
+     */
+    public void flushBatch() {
+    	if (!this.batching)
+    		return;
+    	this.batching = false;
+    	if (!this.finished) {
+    		try {
+    			flushToBot();
+    		} catch(IOException e) {
+    			System.err.println("Writing to bot failed");
+    		}
+    	}
+    }
+    
+    /**
+     * @return : true if lines are held until flushBatch is called
+     */
+    protected boolean isBatching() {
+    	return this.batching;
+    }
+    
+    /**
+     * Sends one line to the bot process, or buffers it when batching
+     * @param line : line without line ending
+     * @throws IOException
+     */
+    protected void sendToBot(ProtocolEncoder line) throws IOException {
+		this.inputStream.write(line.getBuffer(), 0, line.getLength());
+		this.inputStream.write('\n');
+		if (!this.batching)
+			this.inputStream.flush();
+    }
+    
+    /**
+     * Sends the lines buffered while batching to the bot process
+     * @throws IOException
+     */
+    protected void flushToBot() throws IOException {
+    	this.inputStream.flush();
+    }
+    
+    /**
+     * Hands a response of the bot to the engine, replacing an earlier
+     * response that was not taken yet
+     * @param response : the line the bot returned
+     */
+    public void setResponse(String response) {
+    	long time = System.nanoTime();
+    	setResponse(response, time);
+    }
+    
+    /**
+     * Hands a response of the bot to the engine, replacing an earlier
+     * response that was not taken yet
+     * @param response : the line the bot returned
+     * @param firstByteTime : System.nanoTime() at which the first byte of the line was read
+     */
+    public void setResponse(String response, long firstByteTime) {
+    	this.latestResponseTime = System.nanoTime();
+    	this.latestFirstByteTime = firstByteTime;
+    	this.responses.clear();
+    	this.responses.offer(response);
+    }
+    
+    /**
+     * Waits until the bot has given a response and then returns it, wakes up
+     * as soon as the response is handed over
      * @param timeOut : time before timeout
      * @return : bot's response, returns and empty string when there is no response
      */
     public String getResponse(long timeOut) {
-    	long timeStart = System.currentTimeMillis();
+    	return getResponse(timeOut, System.nanoTime());
+    }
+    
+    /**
+     * Waits until the bot has given a response and then returns it, wakes up
+     * as soon as the response is handed over
+     * @param timeOut : time before timeout
+     * @param startTime : System.nanoTime() from which the timeout is counted
+     * @return : bot's response, returns and empty string when there is no response
+     */
+    public String getResponse(long timeOut, long startTime) {
     	String enginesays = "Output from your bot: ";
-    	String response;
+    	this.responseTime = -1;
 		
     	if (this.errorCounter > this.MAX_ERRORS) {
     		addToDump(String.format("Maximum number (%d) of time-outs reached: skipping all moves.", this.MAX_ERRORS));
     		return "";
     	}
     	
-    	while(this.response == null) {
-    		long timeNow = System.currentTimeMillis();
-			long timeElapsed = timeNow - timeStart;
-			
-			if(timeElapsed >= timeOut) {
-				addToDump(String.format("Response timed out (%dms), let your bot return '%s' instead of nothing or make it faster.", timeOut, this.NULL_MOVE));
-				this.errorCounter++;
-                if (this.errorCounter > this.MAX_ERRORS) {
-                    finish();
-                }
-                addToDump(String.format("%snull", enginesays));
-				return "";
-			}
-			
-			try { Thread.sleep(2); } catch (InterruptedException e) {}
+    	Object event = EngineEvents.beginBotResponse();
+    	String response = waitForResponse(startTime + TimeUnit.MILLISECONDS.toNanos(timeOut));
+    	EngineEvents.endBotResponse(event, this.idString, startTime, response);
+    	
+    	if (response == null && Thread.currentThread().isInterrupted()) { // the engine is stopping, not the bot's fault
+    		addToDump("Waiting for the response was interrupted.");
+    		return "";
     	}
-		if(this.response.equalsIgnoreCase("no_moves")) {
-			this.response = null;
-            addToDump(String.format("%s\"%s\"", enginesays, this.NULL_MOVE));
+    	
+		if(response == null) {
+			addToDump(String.format("Response timed out (%dms), let your bot return '%s' instead of nothing or make it faster.", timeOut, this.NULL_MOVE));
+			this.errorCounter++;
+            if (this.errorCounter > this.MAX_ERRORS) {
+                finish();
+            }
+            addToDump(String.format("%snull", enginesays));
 			return "";
 		}
 		
-		response = this.response;
-		this.response = null;
+		this.responseTime = this.latestResponseTime;
+		this.responseLatency.record(System.nanoTime() - startTime);
+		this.firstByteLatency.record(this.latestFirstByteTime - startTime);
+		
+		if(response.equalsIgnoreCase("no_moves")) {
+            addToDump(String.format("%s\"%s\"", enginesays, this.NULL_MOVE));
+			return "";
+		}
 
 		addToDump(String.format("%s\"%s\"", enginesays, response));
 		return response;
     }
     
+    /**
+     * @return : the response, null if there was none before the deadline or
+     * the thread was interrupted, which keeps the interrupt flag set
+     */
+    private String waitForResponse(long deadline) {
+    	try {
+    		return this.responses.poll(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		return null;
+    	}
+    }
+    
+    /**
+     * @return : System.nanoTime() at which the response returned by the last
+     * getResponse call was given, -1 if there was no response
+     */
+    public long getResponseTime() {
+    	return this.responseTime;
+    }
+    
+    /**
+     * @return : times from the move requests until the engine had the
+     * responses, responses that timed out are not counted
+     */
+    public LatencyHistogram getResponseLatency() {
+    	return this.responseLatency;
+    }
+    
+    /**
+     * @return : times from the move requests until the first bytes of the
+     * responses were read, responses that timed out are not counted. Reader
+     * threads only see whole lines, so with those it's the time until the
+     * line was read.
+     */
+    public LatencyHistogram getFirstByteLatency() {
+    	return this.firstByteLatency;
+    }
+    
+    /**
+     * @return : number of responses that timed out
+     */
+    public int getErrorCounter() {
+    	return this.errorCounter;
+    }
+    
     /**
      * Ends the bot process and it's communication
      */
@@ -122,20 +324,39 @@ public class IOPlayer implements Runnable {
         if(this.finished)
             return;
 
+        stopBot();
+
+        this.finished = true;
+    }
+    
+    /**
+     * Stops the bot's IO and ends the bot process
+     */
+    protected void stopBot() {
+    	
         // stop the bot's IO
     	try { this.inputStream.close(); } catch (IOException e) {}
-    	this.outputGobbler.finish();
-    	this.errorGobbler.finish();
+    	if(this.streams != null) {
+    		this.streams.close();
+    	} else if(this.outputGobbler != null) {
+    		this.outputGobbler.finish();
+    		this.errorGobbler.finish();
+    	}
     	
     	// end the bot process
     	this.process.destroy();
     	try { this.process.waitFor(); } catch (InterruptedException ex) {}
-
-        this.finished = true;
     }
     
     /**
-     * @return : the bot process
+     * @return : true if the bot has been stopped
+     */
+    public boolean isFinished() {
+        return this.finished;
+    }
+    
+    /**
+     * @return : the bot process, null if the bot doesn't run in a process
      */
     public Process getProcess() {
         return this.process;
@@ -153,7 +374,7 @@ public class IOPlayer implements Runnable {
      * @param dumpy : string to add to the dump
      */
     public void addToDump(String dumpy) {
-		dump.append(dumpy + "\n");
+		dump.append(dumpy).append('\n');
 	}
     
     /**
@@ -168,6 +389,10 @@ public class IOPlayer implements Runnable {
      * @return : the complete stdOut from the bot process
      */
     public String getStdout() {
+    	if(this.streams != null)
+    		return this.streams.getStdout();
+    	if(this.outputGobbler == null)
+    		return "";
     	return this.outputGobbler.getData();
     }
     
@@ -175,6 +400,10 @@ public class IOPlayer implements Runnable {
      * @return : the complete stdErr from the bot process
      */
     public String getStderr() {
+    	if(this.streams != null)
+    		return this.streams.getStderr();
+    	if(this.errorGobbler == null)
+    		return "";
     	return this.errorGobbler.getData();
     }
     
@@ -184,12 +413,45 @@ public class IOPlayer implements Runnable {
     public String getDump() {
     	return dump.toString();
     }
+    
+    /**
+     * @return : number of characters in the dump, without copying it
+     */
+    public int getDumpSize() {
+    	return dump.length();
+    }
+    
+    /**
+     * @return : number of characters of stdout kept, without copying them
+     */
+    public int getStdoutSize() {
+    	if(this.streams != null)
+    		return this.streams.getStdoutSize();
+    	if(this.outputGobbler == null)
+    		return 0;
+    	return this.outputGobbler.getDataSize();
+    }
+    
+    /**
+     * @return : number of characters of stderr kept, without copying them
+     */
+    public int getStderrSize() {
+    	if(this.streams != null)
+    		return this.streams.getStderrSize();
+    	if(this.errorGobbler == null)
+    		return 0;
+    	return this.errorGobbler.getDataSize();
+    }
 
     @Override
     /**
      * Start the communication with the bot
      */
     public void run() {
+    	if(this.multiplexer != null) {
+    		this.streams = this.multiplexer.register(this.process, this);
+    		return;
+    	}
         this.outputGobbler.start();
         this.errorGobbler.start();
     }
@@ -0,0 +1,52 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+/**
+ * InProcessBot interface
+ * 
+ * Implement this interface to run a bot inside the engine's JVM instead of
+ * in its own process. The bot gets the same information as a bot process
+ * would get through the protocol, the callbacks are called one by one on
+ * a thread that belongs to the bot.
+ * 
+ * Implementations are loaded by class name and need a public constructor
+ * without arguments. When the class name in the bot command is followed by
+ * an argument, a public constructor that takes one String is used instead.
+ */
+public interface InProcessBot {
+    
+    /**
+     * Called for every "settings [type] [value]" line
+     */
+    public void onSettings(String type, String value);
+    
+    /**
+     * Called for every "update [player] [type] [value]" line, player is "game"
+     * for updates about the game in general
+     */
+    public void onUpdate(String player, String type, String value);
+    
+    /**
+     * Called for every "action [type] [time]" line
+     * @param type : type of action the bot has to return
+     * @param time : time left in the bot's time bank in milliseconds
+     * @return : the bot's response, null if it has no response
+     */
+    public String onAction(String type, long time);
+}
@@ -0,0 +1,203 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * InProcessPlayer class
+ * 
+ * Runs an InProcessBot on its own thread and feeds it the lines the engine
+ * would write to a bot process. Responses are handed to the engine like
+ * the output of a bot process, so the time bank applies in the same way.
+ */
+public class InProcessPlayer extends IOPlayer {
+    
+    public static final String COMMAND_PREFIX = "java-class:"; // prefix of commands that load an InProcessBot by class name
+    
+    private static final String STOP = new String("stop"); // compared by reference
+    private static final long STOP_TIMEOUT = 1000; // milliseconds to wait for the bot thread to end
+    
+    private InProcessBot bot;
+    private BlockingQueue<String> lines;
+    private Thread botThread;
+    private StringBuffer stdout;
+    private StringBuffer stderr;
+    private volatile boolean stopped;
+    
+    public InProcessPlayer(InProcessBot bot, String idString) {
+        super(idString);
+        this.bot = bot;
+        this.lines = new LinkedBlockingQueue<String>();
+        this.stdout = new StringBuffer();
+        this.stderr = new StringBuffer();
+        this.stopped = false;
+        this.botThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                handleLines();
+            }
+        }, "bot-" + idString);
+        this.botThread.setDaemon(true);
+    }
+    
+    /**
+     * Creates the bot from given command
+     * @param command : COMMAND_PREFIX followed by the class name of an InProcessBot,
+     * optionally followed by a space and an argument for the bot's constructor
+     * @return : the bot
+     */
+    public static InProcessBot createBot(String command) throws ReflectiveOperationException {
+        String bot = command.substring(COMMAND_PREFIX.length()).trim();
+        int space = bot.indexOf(' ');
+        if (space < 0)
+            return Class.forName(bot).asSubclass(InProcessBot.class).getConstructor().newInstance();
+        
+        String className = bot.substring(0, space);
+        String argument = bot.substring(space + 1).trim();
+        return Class.forName(className).asSubclass(InProcessBot.class).getConstructor(String.class).newInstance(argument);
+    }
+    
+    /**
+     * @return : true if given command starts an InProcessBot instead of a bot process
+     */
+    public static boolean isInProcessCommand(String command) {
+        return command.startsWith(COMMAND_PREFIX);
+    }
+    
+    @Override
+    protected void sendToBot(ProtocolEncoder line) throws IOException {
+        if (this.stopped)
+            throw new IOException("Bot is stopped");
+        this.lines.add(line.toString());
+    }
+    
+    @Override
+    protected void flushToBot() {
+        // lines are handed to the bot thread as soon as they are written
+    }
+    
+    /**
+     * Stops the bot thread, also when the bot is stuck in one of its calls.
+     * A bot that ignores the interrupt is left running on its daemon thread.
+     */
+    @Override
+    protected void stopBot() {
+        this.stopped = true;
+        this.lines.clear();
+        this.lines.add(STOP);
+        this.botThread.interrupt();
+        try {
+            this.botThread.join(STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Takes the lines written to the bot one by one and calls the bot for each of them
+     */
+    private void handleLines() {
+        try {
+            while (!this.stopped) {
+                String line = this.lines.take();
+                if (line == STOP)
+                    break;
+                
+                try {
+                    handleLine(line);
+                } catch (Exception e) { // the bot crashed, like a process it doesn't respond anymore
+                    StringWriter trace = new StringWriter();
+                    e.printStackTrace(new PrintWriter(trace));
+                    this.stderr.append(trace.toString());
+                }
+            }
+        } catch (InterruptedException e) {}
+    }
+    
+    private void handleLine(String line) {
+        int typeStart = line.indexOf(' ') + 1;
+        int typeEnd = line.indexOf(' ', typeStart);
+        if (typeStart <= 0 || typeEnd < 0)
+            return;
+        
+        String command = line.substring(0, typeStart - 1);
+        
+        if (command.equals("settings")) {
+            this.bot.onSettings(line.substring(typeStart, typeEnd), line.substring(typeEnd + 1));
+        }
+        else if (command.equals("update")) {
+            int valueStart = line.indexOf(' ', typeEnd + 1) + 1;
+            if (valueStart <= 0)
+                return;
+            this.bot.onUpdate(line.substring(typeStart, typeEnd), line.substring(typeEnd + 1, valueStart - 1), line.substring(valueStart));
+        }
+        else if (command.equals("action")) {
+            String response = this.bot.onAction(line.substring(typeStart, typeEnd), Long.parseLong(line.substring(typeEnd + 1)));
+            if (response != null) {
+                this.stdout.append(response + "\n");
+                setResponse(response);
+            }
+        }
+    }
+    
+    /**
+     * @return : the bot that is played
+     */
+    public InProcessBot getBot() {
+        return this.bot;
+    }
+    
+    /**
+     * @return : all responses of the bot
+     */
+    @Override
+    public String getStdout() {
+        return this.stdout.toString();
+    }
+    
+    /**
+     * @return : the stack traces of all exceptions thrown by the bot
+     */
+    @Override
+    public String getStderr() {
+        return this.stderr.toString();
+    }
+    
+    @Override
+    public int getStdoutSize() {
+        return this.stdout.length();
+    }
+    
+    @Override
+    public int getStderrSize() {
+        return this.stderr.length();
+    }
+    
+    @Override
+    /**
+     * Start the bot's thread
+     */
+    public void run() {
+        this.botThread.start();
+    }
+}
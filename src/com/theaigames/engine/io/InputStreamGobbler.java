@@ -35,7 +35,7 @@ import java.io.InputStreamReader;
 public class InputStreamGobbler extends Thread {
 	
 	private InputStream inputStream;
-	private IOPlayer player;
+	private volatile IOPlayer player; // null while nobody takes the responses
 	private String type;
 	private StringBuffer buffer;
 	private boolean finished;
@@ -60,8 +60,9 @@ public class InputStreamGobbler extends Thread {
 
             while (!finished && (lastLine = bufferedReader.readLine()) != null) {
                 if (!lastLine.contains("VM warning") && buffer.length() < 1000000) { //catches bots that return way too much (infinite loop)
-                    if (this.type.equals("output"))
-                	   this.player.response = lastLine;
+                    IOPlayer player = this.player;
+                    if (this.type.equals("output") && player != null)
+                	   player.setResponse(lastLine);
                     buffer.append(lastLine + "\n");
                 }
             }
@@ -81,6 +82,28 @@ public class InputStreamGobbler extends Thread {
 		return buffer.toString();
 	}
     
+    /**
+     * @return the number of characters read by this InputStreamGobbler
+     */
+    public int getDataSize() {
+    	return buffer.length();
+    }
+    
+    /**
+     * Hands the responses to given player from now on
+     * @param player : the player, null to throw them away
+     */
+    void setPlayer(IOPlayer player) {
+    	this.player = player;
+    }
+    
+    /**
+     * Forgets the data read so far
+     */
+    void clearData() {
+    	buffer.setLength(0);
+    }
+    
     /**
      * Stop running
      */
@@ -0,0 +1,182 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.engine.io;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ProtocolEncoder class
+ *
+ * Builds one protocol line, like "update player1 combo 2", as bytes in a
+ * buffer that is reused for every line. Words are separated by spaces,
+ * keywords are encoded once and numbers are written digit by digit, so
+ * encoding a line doesn't create any objects.
+ */
+public final class ProtocolEncoder {
+
+	public static final byte[] SETTINGS = encode("settings");
+	public static final byte[] UPDATE = encode("update");
+	public static final byte[] ACTION = encode("action");
+	public static final byte[] GAME = encode("game");
+
+	private static final byte[] MIN_LONG = encode(Long.toString(Long.MIN_VALUE));
+
+	private byte[] buffer;
+	private int length;
+	private boolean ascii; // false if the line holds characters that are encoded with the default charset
+
+	public ProtocolEncoder() {
+		this.buffer = new byte[1024];
+		this.length = 0;
+		this.ascii = true;
+	}
+
+	/**
+	 * Empties the line
+	 * @return : this encoder
+	 */
+	public ProtocolEncoder reset() {
+		this.length = 0;
+		this.ascii = true;
+		return this;
+	}
+
+	/**
+	 * Adds an encoded word to the line, like one of the keywords
+	 * @param word : bytes of the word
+	 * @return : this encoder
+	 */
+	public ProtocolEncoder append(byte[] word) {
+		addSeparator();
+		ensureCapacity(word.length);
+		System.arraycopy(word, 0, this.buffer, this.length, word.length);
+		this.length += word.length;
+		return this;
+	}
+
+	/**
+	 * Adds a word to the line
+	 * @param word : the word
+	 * @return : this encoder
+	 */
+	public ProtocolEncoder append(String word) {
+		addSeparator();
+		int wordLength = word.length();
+		ensureCapacity(wordLength);
+
+		for(int i = 0; i < wordLength; i++) {
+			char c = word.charAt(i);
+			if(c >= 0x80) { // not ascii, let the charset handle the whole word
+				this.length -= i;
+				this.ascii = false;
+				byte[] bytes = word.getBytes(Charset.defaultCharset());
+				ensureCapacity(bytes.length);
+				System.arraycopy(bytes, 0, this.buffer, this.length, bytes.length);
+				this.length += bytes.length;
+				return this;
+			}
+			this.buffer[this.length++] = (byte) c;
+		}
+		return this;
+	}
+
+	/**
+	 * Adds a number to the line
+	 * @param value : the number
+	 * @return : this encoder
+	 */
+	public ProtocolEncoder append(long value) {
+		if(value == Long.MIN_VALUE)
+			return append(MIN_LONG);
+
+		addSeparator();
+		ensureCapacity(20);
+
+		if(value < 0) {
+			this.buffer[this.length++] = '-';
+			value = -value;
+		}
+
+		// write the digits backwards, then turn them around
+		int start = this.length;
+		do {
+			this.buffer[this.length++] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while(value > 0);
+
+		for(int i = start, j = this.length - 1; i < j; i++, j--) {
+			byte digit = this.buffer[i];
+			this.buffer[i] = this.buffer[j];
+			this.buffer[j] = digit;
+		}
+		return this;
+	}
+
+	/**
+	 * @return : the buffer holding the line, only the first getLength() bytes are part of it
+	 */
+	public byte[] getBuffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * @return : number of bytes in the line
+	 */
+	public int getLength() {
+		return this.length;
+	}
+
+	/**
+	 * Adds the line to given StringBuilder without creating a String
+	 * @param builder : builder the line is added to
+	 */
+	public void appendTo(StringBuilder builder) {
+		if(!this.ascii) {
+			builder.append(toString());
+			return;
+		}
+		builder.ensureCapacity(builder.length() + this.length);
+		for(int i = 0; i < this.length; i++)
+			builder.append((char) this.buffer[i]);
+	}
+
+	@Override
+	public String toString() {
+		return new String(this.buffer, 0, this.length, this.ascii ? StandardCharsets.US_ASCII : Charset.defaultCharset());
+	}
+
+	private void addSeparator() {
+		if(this.length > 0) {
+			ensureCapacity(1);
+			this.buffer[this.length++] = ' ';
+		}
+	}
+
+	private void ensureCapacity(int extra) {
+		if(this.length + extra > this.buffer.length) {
+			byte[] buffer = new byte[Math.max(this.buffer.length * 2, this.length + extra)];
+			System.arraycopy(this.buffer, 0, buffer, 0, this.length);
+			this.buffer = buffer;
+		}
+	}
+
+	private static byte[] encode(String keyword) {
+		return keyword.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,74 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.engine.metrics;
+
+/**
+ * EngineEvents class
+ * 
+ * Emits Java Flight Recorder events for rounds, round phases, moves, bot IO
+ * and line clearing. Every event is started with a begin method, which
+ * returns null if the event is not recorded, and committed with the
+ * matching end method.
+ * 
+ * Flight Recorder events need Java 11, so this version does nothing and
+ * the JIT removes the calls. The jar built by Maven on Java 11 or later
+ * is a multi-release jar that has another version of this class in
+ * src-java11, which emits the events when a recording has them enabled.
+ * They are disabled by default.
+ */
+public final class EngineEvents {
+	
+	private EngineEvents() {}
+	
+	public static Object beginRound() {
+		return null;
+	}
+	
+	public static void endRound(Object event, int round) {}
+	
+	public static Object beginPhase() {
+		return null;
+	}
+	
+	public static void endPhase(Object event, Enum<?> phase, int round) {}
+	
+	public static Object beginMoves() {
+		return null;
+	}
+	
+	public static void endMoves(Object event, String player, int round, int moves, int illegalMoves) {}
+	
+	public static Object beginBotWrite() {
+		return null;
+	}
+	
+	public static void endBotWrite(Object event, String bot, int bytes) {}
+	
+	public static Object beginBotResponse() {
+		return null;
+	}
+	
+	public static void endBotResponse(Object event, String bot, long requestTime, String response) {}
+	
+	public static Object beginLineClear() {
+		return null;
+	}
+	
+	public static void endLineClear(Object event, int rows) {}
+}
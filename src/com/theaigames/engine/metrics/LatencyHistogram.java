@@ -0,0 +1,179 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.engine.metrics;
+
+/**
+ * LatencyHistogram class
+ * 
+ * Counts durations in nanoseconds in buckets that are at most about 3% wide,
+ * so percentiles can be read from it without keeping every value. Values
+ * below 64ns get a bucket each, above that every power of two is split in
+ * 32 buckets. All buckets are allocated up front, recording a value only
+ * increments a counter.
+ * 
+ * Record on one thread. Other threads can read the histogram at the same
+ * time, they may see a value that is being recorded only partly.
+ */
+public class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS; // values below this are counted exactly
+	private static final int BUCKETS = LINEAR_BUCKETS + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+	
+	private final long[] counts;
+	private long count;
+	private long total;
+	private long min;
+	private long max;
+	
+	public LatencyHistogram() {
+		this.counts = new long[BUCKETS];
+		reset();
+	}
+	
+	/**
+	 * Counts one duration
+	 * @param nanos : the duration in nanoseconds, negative durations are counted as 0
+	 */
+	public void record(long nanos) {
+		if(nanos < 0)
+			nanos = 0;
+		
+		this.counts[getBucket(nanos)]++;
+		this.count++;
+		this.total += nanos;
+		if(nanos < this.min)
+			this.min = nanos;
+		if(nanos > this.max)
+			this.max = nanos;
+	}
+	
+	/**
+	 * Adds all values counted by given histogram to this one
+	 * @param histogram : the histogram to add
+	 */
+	public void add(LatencyHistogram histogram) {
+		if(histogram.count == 0)
+			return;
+		
+		for(int i = 0; i < BUCKETS; i++)
+			this.counts[i] += histogram.counts[i];
+		this.count += histogram.count;
+		this.total += histogram.total;
+		this.min = Math.min(this.min, histogram.min);
+		this.max = Math.max(this.max, histogram.max);
+	}
+	
+	/**
+	 * Forgets all values
+	 */
+	public void reset() {
+		for(int i = 0; i < BUCKETS; i++)
+			this.counts[i] = 0;
+		this.count = 0;
+		this.total = 0;
+		this.min = Long.MAX_VALUE;
+		this.max = 0;
+	}
+	
+	/**
+	 * @return : number of values counted
+	 */
+	public long getCount() {
+		return this.count;
+	}
+	
+	/**
+	 * @return : sum of all values in nanoseconds
+	 */
+	public long getTotal() {
+		return this.total;
+	}
+	
+	/**
+	 * @return : smallest value in nanoseconds, 0 if nothing was counted
+	 */
+	public long getMin() {
+		return (this.count == 0) ? 0 : this.min;
+	}
+	
+	/**
+	 * @return : largest value in nanoseconds
+	 */
+	public long getMax() {
+		return this.max;
+	}
+	
+	/**
+	 * @return : average value in nanoseconds, 0 if nothing was counted
+	 */
+	public double getMean() {
+		return (this.count == 0) ? 0 : (double) this.total / this.count;
+	}
+	
+	/**
+	 * @param percentile : percentage of the values, between 0 and 100
+	 * @return : the value in nanoseconds that given percentage of the values
+	 * is at or below, rounded up to the end of its bucket but never above the
+	 * largest value, 0 if nothing was counted
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if(this.count == 0)
+			return 0;
+		
+		long rank = Math.max((long) Math.ceil(percentile / 100 * this.count), 1);
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += this.counts[i];
+			if(seen >= rank)
+				return Math.max(Math.min(getBucketEnd(i), this.max), getMin());
+		}
+		return this.max;
+	}
+	
+	/**
+	 * @return : summary of the values in milliseconds, like
+	 * "count 80, mean 1.250ms, p50 1.180ms, p90 ..., p99 ..., p99.9 ..., max ..."
+	 */
+	@Override
+	public String toString() {
+		return String.format("count %d, mean %.3fms, p50 %.3fms, p90 %.3fms, p99 %.3fms, p99.9 %.3fms, max %.3fms",
+				this.count, getMean() / 1e6, getValueAtPercentile(50) / 1e6, getValueAtPercentile(90) / 1e6,
+				getValueAtPercentile(99) / 1e6, getValueAtPercentile(99.9) / 1e6, getMax() / 1e6);
+	}
+	
+	private static int getBucket(long value) {
+		if(value < LINEAR_BUCKETS)
+			return (int) value;
+		
+		// the highest bits of the value, with the highest one set, select the bucket within its power of two
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+	
+	private static long getBucketEnd(int bucket) {
+		if(bucket < LINEAR_BUCKETS)
+			return bucket;
+		
+		int shift = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+		long mantissa = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,100 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.engine.metrics;
+
+/**
+ * PhaseTimes class
+ * 
+ * A LatencyHistogram for every phase of some work, like the phases of a
+ * game round, with the phases given by an enum.
+ * 
+ * Record on one thread, see LatencyHistogram.
+ * 
+ * @param <P> : the enum of the phases
+ */
+public class PhaseTimes<P extends Enum<P>> {
+	
+	private final P[] phases;
+	private final LatencyHistogram[] histograms;
+	
+	/**
+	 * @param phaseType : class of the enum of the phases
+	 */
+	public PhaseTimes(Class<P> phaseType) {
+		this.phases = phaseType.getEnumConstants();
+		this.histograms = new LatencyHistogram[this.phases.length];
+		for(int i = 0; i < this.histograms.length; i++)
+			this.histograms[i] = new LatencyHistogram();
+	}
+	
+	/**
+	 * Counts the time given phase took once
+	 * @param phase : the phase
+	 * @param nanos : the time in nanoseconds
+	 */
+	public void record(P phase, long nanos) {
+		this.histograms[phase.ordinal()].record(nanos);
+	}
+	
+	/**
+	 * Counts the time from given start until now for given phase
+	 * @param phase : the phase
+	 * @param startTime : System.nanoTime() at the start of the phase
+	 * @return : System.nanoTime() now, the start of the next phase
+	 */
+	public long recordSince(P phase, long startTime) {
+		long time = System.nanoTime();
+		record(phase, time - startTime);
+		return time;
+	}
+	
+	/**
+	 * Adds the times of given phase times to these
+	 * @param phaseTimes : times of the same phases
+	 */
+	public void add(PhaseTimes<P> phaseTimes) {
+		for(int i = 0; i < this.histograms.length; i++)
+			this.histograms[i].add(phaseTimes.histograms[i]);
+	}
+	
+	/**
+	 * @return : the histogram of given phase
+	 */
+	public LatencyHistogram getHistogram(P phase) {
+		return this.histograms[phase.ordinal()];
+	}
+	
+	/**
+	 * @return : the phases, in order
+	 */
+	public P[] getPhases() {
+		return this.phases.clone();
+	}
+	
+	/**
+	 * @return : one line per phase with its name and summary
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < this.phases.length; i++)
+			builder.append(this.phases[i].toString().toLowerCase()).append(": ").append(this.histograms[i]).append('\n');
+		return builder.toString();
+	}
+}
@@ -19,11 +19,18 @@ package com.theaigames.game;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.theaigames.engine.Engine;
 import com.theaigames.engine.Logic;
+import com.theaigames.engine.io.BotIOMultiplexer;
+import com.theaigames.engine.io.BotProcessPool;
 import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.metrics.PhaseTimes;
+import com.theaigames.game.management.EngineMetrics;
+import com.theaigames.game.management.MatchMetrics;
+import com.theaigames.game.player.AbstractPlayer;
 
 /**
  * abstract class AbstractGame
@@ -46,6 +53,11 @@ public abstract class AbstractGame implements Logic {
 	public boolean DEV_MODE = false; // turn this on for local testing
 	public String TEST_BOT; // command for the test bot in DEV_MODE
 	public int NUM_TEST_BOTS; // number of bots for this game
+	public BotIOMultiplexer IO_MULTIPLEXER; // reads the output of all bots if set, instead of two threads per bot
+	public BotProcessPool PROCESS_POOL; // bot processes are taken from and handed back to this pool if set
+	public EngineMetrics METRICS; // the game is shown in JMX while it runs if set
+	
+	private MatchMetrics matchMetrics;
 	
 	public AbstractGame() {
 		maxRounds = -1; // set this later if there is a maximum amount of rounds for this game
@@ -60,7 +72,7 @@ public abstract class AbstractGame implements Logic {
 	public void setupEngine(String args[]) throws IOException, RuntimeException {
 		
 		// create engine
-		this.engine = new Engine();
+		this.engine = new Engine(IO_MULTIPLEXER, PROCESS_POOL);
 		
 		// add the test bots if in DEV_MODE
 		if(DEV_MODE) {
@@ -75,6 +87,7 @@ public abstract class AbstractGame implements Logic {
 				this.engine.addPlayer(TEST_BOT, "ID_" + i);
 			}
 			
+			addMetrics(Collections.nCopies(NUM_TEST_BOTS, TEST_BOT));
 			return;
 		}
 		
@@ -99,6 +112,8 @@ public abstract class AbstractGame implements Logic {
 		for(int i=0; i < botIds.size(); i++) {
 			this.engine.addPlayer(botDirs.get(i), botIds.get(i));
 		}
+		
+		addMetrics(botDirs);
 	}
 	
 	/**
@@ -106,6 +121,53 @@ public abstract class AbstractGame implements Logic {
 	 */
 	protected abstract void runEngine() throws Exception;
 	
+	/**
+	 * Sets up the engine with given bots and plays the whole game
+	 * @param botCommands : commands to start the bots
+	 * @return : the result of the game
+	 */
+	public MatchResult playMatch(String... botCommands) throws Exception {
+		long startTime = System.currentTimeMillis();
+		
+		try {
+			setupEngine(botCommands);
+			runEngine();
+		} finally { // make sure no bots are left running
+			if(this.engine != null)
+				for(IOPlayer ioPlayer : this.engine.getPlayers())
+					ioPlayer.finish();
+			closeOutput();
+			removeMetrics();
+		}
+		
+		return new MatchResult(this.processor, this.engine.getPlayers(), System.currentTimeMillis() - startTime, getPhaseTimes());
+	}
+	
+	/**
+	 * Override this to close the files the game writes while it runs. It's
+	 * called when the game is finished and when it failed, so it must
+	 * work more than once and before the game is set up.
+	 */
+	protected void closeOutput() {
+	}
+	
+	/**
+	 * Override this to show the time banks of the players in JMX
+	 * @return : the players of the game, in the order of the bots, empty
+	 * before the game is set up
+	 */
+	public List<? extends AbstractPlayer> getPlayers() {
+		return Collections.emptyList();
+	}
+	
+	/**
+	 * Override this if the processor times the phases of its rounds
+	 * @return : time every phase of the rounds took, null if they aren't timed
+	 */
+	public PhaseTimes<?> getPhaseTimes() {
+		return null;
+	}
+	
 	/**
 	 * @return : True when the game is over
 	 */
@@ -133,15 +195,17 @@ public abstract class AbstractGame implements Logic {
 	}
 	
 	/**
-	 * close the bot processes, save, exit program
+	 * close the bot processes and save. Doesn't exit the program, so
+	 * multiple games can be played in one JVM.
 	 */
 	@Override
 	public void finish() throws Exception
 	{
-		// stop the bots
+		// stop the bots, finish() returns once a bot process has exited
 		for(IOPlayer ioPlayer : this.engine.getPlayers())
 			ioPlayer.finish();
-		Thread.sleep(100);
+		closeOutput();
+		removeMetrics();
 		
 		if(DEV_MODE) { // print the game file when in DEV_MODE
 			String playedGame = this.processor.getPlayedGame();
@@ -155,8 +219,19 @@ public abstract class AbstractGame implements Logic {
 		}
 		
 		System.out.println("Done.");
-		
-        System.exit(0);
+	}
+	
+	private void addMetrics(List<String> botCommands) {
+		if(METRICS != null)
+			this.matchMetrics = METRICS.addMatch(this, botCommands);
+	}
+	
+	// the game is over or failed, it's no longer shown as running
+	private void removeMetrics() {
+		if(this.matchMetrics != null) {
+			METRICS.removeMatch(this.matchMetrics);
+			this.matchMetrics = null;
+		}
 	}
 	
 	/**
@@ -0,0 +1,108 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.metrics.PhaseTimes;
+import com.theaigames.game.player.AbstractPlayer;
+
+/**
+ * MatchResult class
+ * 
+ * The outcome of one game played with AbstractGame.playMatch
+ */
+
+public class MatchResult {
+	
+	private final String winner;
+	private final int winnerIndex;
+	private final int rounds;
+	private final long duration;
+	private final List<IOPlayer> bots;
+	private final PhaseTimes<?> phaseTimes;
+	
+	public MatchResult(GameHandler processor, List<IOPlayer> bots, long duration) {
+		this(processor, bots, duration, null);
+	}
+	
+	/**
+	 * @param phaseTimes : time every phase of the rounds took, null if the game doesn't time them
+	 */
+	public MatchResult(GameHandler processor, List<IOPlayer> bots, long duration, PhaseTimes<?> phaseTimes) {
+		AbstractPlayer winner = processor.getWinner();
+		this.winner = (winner == null) ? null : winner.getName();
+		this.winnerIndex = (winner == null) ? -1 : bots.indexOf(winner.getBot());
+		this.rounds = processor.getRoundNumber();
+		this.duration = duration;
+		this.bots = new ArrayList<IOPlayer>(bots);
+		this.phaseTimes = phaseTimes;
+	}
+	
+	/**
+	 * @return : name of the winning player, null if the game is a draw
+	 */
+	public String getWinner() {
+		return this.winner;
+	}
+	
+	/**
+	 * @return : index of the winner's bot in getBots(), which is the order of the
+	 * bot commands, -1 if the game is a draw
+	 */
+	public int getWinnerIndex() {
+		return this.winnerIndex;
+	}
+	
+	/**
+	 * @return : True if there is no winner
+	 */
+	public boolean isDraw() {
+		return this.winner == null;
+	}
+	
+	/**
+	 * @return : number of rounds played
+	 */
+	public int getRounds() {
+		return this.rounds;
+	}
+	
+	/**
+	 * @return : time it took to play the game in milliseconds
+	 */
+	public long getDuration() {
+		return this.duration;
+	}
+	
+	/**
+	 * @return : time every phase of the rounds took, null if the game doesn't time them
+	 */
+	public PhaseTimes<?> getPhaseTimes() {
+		return this.phaseTimes;
+	}
+	
+	/**
+	 * @return : the (finished) bots of the game, in the order they were added, for their dumps and output
+	 */
+	public List<IOPlayer> getBots() {
+		return this.bots;
+	}
+}
@@ -0,0 +1,78 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * MatchRunner class
+ * 
+ * Plays many games at the same time in one JVM. Every game needs its own
+ * AbstractGame instance, which holds all of the game's state.
+ */
+
+public class MatchRunner {
+	
+	private ExecutorService executor;
+	
+	/**
+	 * @param threads : maximum number of games played at the same time
+	 */
+	public MatchRunner(int threads) {
+		this(Executors.newFixedThreadPool(threads));
+	}
+	
+	/**
+	 * @param executor : executor the games are played on
+	 */
+	public MatchRunner(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
+	/**
+	 * Schedules a game
+	 * @param game : new game instance that is not used for any other game
+	 * @param botCommands : commands to start the bots
+	 * @return : the result of the game when it is done
+	 */
+	public Future<MatchResult> submit(final AbstractGame game, final String... botCommands) {
+		return this.executor.submit(new Callable<MatchResult>() {
+			@Override
+			public MatchResult call() throws Exception {
+				return game.playMatch(botCommands);
+			}
+		});
+	}
+	
+	/**
+	 * Stops accepting new games, scheduled games are still played
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+	
+	/**
+	 * @return : the executor the games are played on
+	 */
+	public ExecutorService getExecutor() {
+		return this.executor;
+	}
+}
@@ -0,0 +1,127 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RandomStream class
+ * 
+ * Fast, seedable random generator with the SplitMix64 algorithm of
+ * java.util.SplittableRandom, giving the same numbers for the same seed.
+ * Unlike SplittableRandom its state can be copied, so a game can be
+ * restored to an earlier point and continue with the same numbers.
+ * Not thread-safe, every game uses its own streams.
+ */
+public final class RandomStream {
+	
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final AtomicLong SEEDER = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+	
+	private long seed;
+	private long gamma; // odd
+	
+	/**
+	 * Creates a stream with a seed that differs from all other streams
+	 * created this way
+	 */
+	public RandomStream() {
+		this(mix64(SEEDER.getAndAdd(2 * GOLDEN_GAMMA)));
+	}
+	
+	public RandomStream(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+	
+	private RandomStream(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+	
+	/**
+	 * @return : a new stream with its own numbers, taken from this stream
+	 */
+	public RandomStream split() {
+		return new RandomStream(nextLong(), mixGamma(nextSeed()));
+	}
+	
+	/**
+	 * @return : a stream that gives the same numbers as this stream from now on
+	 */
+	public RandomStream copy() {
+		return new RandomStream(this.seed, this.gamma);
+	}
+	
+	/**
+	 * Continues with the numbers of given stream
+	 * @param other : stream to take the state of
+	 */
+	public void setState(RandomStream other) {
+		this.seed = other.seed;
+		this.gamma = other.gamma;
+	}
+	
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+	
+	public int nextInt() {
+		return mix32(nextSeed());
+	}
+	
+	/**
+	 * @param bound : upper bound (exclusive), must be positive
+	 * @return : a random number from 0 up to bound
+	 */
+	public int nextInt(int bound) {
+		if(bound <= 0)
+			throw new IllegalArgumentException("bound must be positive");
+		
+		int r = nextInt();
+		int m = bound - 1;
+		if((bound & m) == 0) { // power of two
+			r &= m;
+		} else { // reject the numbers that would make the result uneven
+			for(int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1);
+		}
+		return r;
+	}
+	
+	private long nextSeed() {
+		return this.seed += this.gamma;
+	}
+	
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	private static int mix32(long z) {
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+	
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
@@ -0,0 +1,257 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.game.management;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.metrics.LatencyHistogram;
+import com.theaigames.engine.metrics.PhaseTimes;
+import com.theaigames.game.AbstractGame;
+import com.theaigames.game.player.AbstractPlayer;
+
+/**
+ * EngineMetrics class
+ * 
+ * Shows the games played in this JVM in JMX, under the domain
+ * "com.theaigames.engine". The engine as a whole is "type=Engine" and
+ * every running game is "type=Match,name=match-[n]" until it is finished.
+ * 
+ * Games are added by AbstractGame when its METRICS field is set. The
+ * response and phase times of finished games are added up until
+ * resetStatistics is called.
+ */
+public class EngineMetrics implements EngineMetricsMXBean {
+	
+	public static final String DOMAIN = "com.theaigames.engine";
+	
+	private static final long RATE_INTERVAL_NANOS = 1000000000L;
+	
+	private static EngineMetrics shared;
+	
+	private final MBeanServer server;
+	private final List<MatchMetrics> running;
+	private final AtomicLong matchIds;
+	
+	// finished games
+	private long finishedMatches;
+	private long finishedRounds;
+	private long finishedTimeouts;
+	private LatencyHistogram responseLatency;
+	private Map<String, LatencyHistogram> phaseTimes;
+	
+	// last sample of the rounds played, for the rate
+	private long sampleTime;
+	private long sampleRounds;
+	private double roundsPerSecond;
+	
+	/**
+	 * @param server : server the engine and the games are registered with
+	 */
+	public EngineMetrics(MBeanServer server) {
+		this.server = server;
+		this.running = new CopyOnWriteArrayList<MatchMetrics>();
+		this.matchIds = new AtomicLong();
+		this.responseLatency = new LatencyHistogram();
+		this.phaseTimes = new LinkedHashMap<String, LatencyHistogram>();
+		this.sampleTime = System.nanoTime();
+		this.sampleRounds = 0;
+		this.roundsPerSecond = 0;
+		
+		register(this, getObjectName("type=Engine"));
+	}
+	
+	/**
+	 * @return : the metrics registered with the platform MBean server, created on first use
+	 */
+	public static synchronized EngineMetrics getShared() {
+		if(shared == null)
+			shared = new EngineMetrics(ManagementFactory.getPlatformMBeanServer());
+		return shared;
+	}
+	
+	/**
+	 * Shows given game in JMX until it is removed
+	 * @param game : the game, with its engine set up
+	 * @param botCommands : commands of the bots of the game
+	 * @return : the game's metrics, pass them to removeMatch when the game is over
+	 */
+	public MatchMetrics addMatch(AbstractGame game, List<String> botCommands) {
+		ObjectName name = getObjectName("type=Match,name=match-" + this.matchIds.incrementAndGet());
+		MatchMetrics match = new MatchMetrics(game, botCommands, name);
+		this.running.add(match);
+		register(match, name);
+		return match;
+	}
+	
+	/**
+	 * Removes given game from JMX and adds its results to the statistics
+	 * @param match : metrics returned by addMatch
+	 */
+	public void removeMatch(MatchMetrics match) {
+		if(!this.running.remove(match))
+			return;
+		
+		try {
+			this.server.unregisterMBean(match.getName());
+		} catch (JMException e) {
+			System.err.println("Removing match from JMX failed: " + e.getMessage());
+		}
+		
+		synchronized(this) {
+			this.finishedMatches++;
+			this.finishedRounds += match.getRound();
+			for(IOPlayer bot : match.getBots()) {
+				this.finishedTimeouts += bot.getErrorCounter();
+				this.responseLatency.add(bot.getResponseLatency());
+			}
+			addPhaseTimes(match.getGame().getPhaseTimes());
+		}
+	}
+	
+	@Override
+	public int getRunningMatches() {
+		return this.running.size();
+	}
+	
+	@Override
+	public synchronized long getFinishedMatches() {
+		return this.finishedMatches;
+	}
+	
+	@Override
+	public synchronized long getRounds() {
+		long rounds = this.finishedRounds;
+		for(MatchMetrics match : this.running)
+			rounds += match.getRound();
+		return rounds;
+	}
+	
+	@Override
+	public synchronized double getRoundsPerSecond() {
+		long time = System.nanoTime();
+		if(time - this.sampleTime >= RATE_INTERVAL_NANOS) {
+			long rounds = getRounds();
+			this.roundsPerSecond = Math.max(rounds - this.sampleRounds, 0) * 1e9 / (time - this.sampleTime);
+			this.sampleTime = time;
+			this.sampleRounds = rounds;
+		}
+		return this.roundsPerSecond;
+	}
+	
+	@Override
+	public synchronized long getBotTimeouts() {
+		long timeouts = this.finishedTimeouts;
+		for(MatchMetrics match : this.running)
+			for(IOPlayer bot : match.getBots())
+				timeouts += bot.getErrorCounter();
+		return timeouts;
+	}
+	
+	@Override
+	public long getMinTimeBank() {
+		long minTimeBank = -1;
+		for(MatchMetrics match : this.running) {
+			for(AbstractPlayer player : match.getGame().getPlayers()) {
+				if(minTimeBank < 0 || player.getTimeBank() < minTimeBank)
+					minTimeBank = player.getTimeBank();
+			}
+		}
+		return minTimeBank;
+	}
+	
+	@Override
+	public synchronized double getResponseP50Millis() {
+		return this.responseLatency.getValueAtPercentile(50) / 1e6;
+	}
+	
+	@Override
+	public synchronized double getResponseP99Millis() {
+		return this.responseLatency.getValueAtPercentile(99) / 1e6;
+	}
+	
+	@Override
+	public synchronized Map<String, Double> getPhaseP50Millis() {
+		return getPercentileMillis(50);
+	}
+	
+	@Override
+	public synchronized Map<String, Double> getPhaseP99Millis() {
+		return getPercentileMillis(99);
+	}
+	
+	@Override
+	public synchronized void resetStatistics() {
+		this.finishedMatches = 0;
+		this.finishedRounds = 0;
+		this.finishedTimeouts = 0;
+		this.responseLatency.reset();
+		this.phaseTimes.clear();
+		this.sampleTime = System.nanoTime();
+		this.sampleRounds = getRounds();
+		this.roundsPerSecond = 0;
+	}
+	
+	private <P extends Enum<P>> void addPhaseTimes(PhaseTimes<P> matchPhaseTimes) {
+		if(matchPhaseTimes == null)
+			return;
+		
+		for(P phase : matchPhaseTimes.getPhases()) {
+			String name = phase.toString().toLowerCase();
+			LatencyHistogram histogram = this.phaseTimes.get(name);
+			if(histogram == null) {
+				histogram = new LatencyHistogram();
+				this.phaseTimes.put(name, histogram);
+			}
+			histogram.add(matchPhaseTimes.getHistogram(phase));
+		}
+	}
+	
+	private Map<String, Double> getPercentileMillis(double percentile) {
+		Map<String, Double> times = new LinkedHashMap<String, Double>();
+		for(Map.Entry<String, LatencyHistogram> entry : this.phaseTimes.entrySet())
+			times.put(entry.getKey(), entry.getValue().getValueAtPercentile(percentile) / 1e6);
+		return times;
+	}
+	
+	private void register(Object bean, ObjectName name) {
+		try {
+			this.server.registerMBean(bean, name);
+		} catch (JMException e) {
+			System.err.println("Adding " + name + " to JMX failed: " + e.getMessage());
+		}
+	}
+	
+	private static ObjectName getObjectName(String properties) {
+		try {
+			return new ObjectName(DOMAIN + ":" + properties);
+		} catch (JMException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
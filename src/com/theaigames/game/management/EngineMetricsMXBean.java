@@ -0,0 +1,40 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.game.management;
+
+import java.util.Map;
+
+/**
+ * EngineMetricsMXBean interface
+ * 
+ * What JMX shows about all games played in this JVM, see EngineMetrics
+ */
+public interface EngineMetricsMXBean {
+	public int getRunningMatches(); // games that are being played now
+	public long getFinishedMatches(); // games finished since the statistics were reset
+	public long getRounds(); // rounds played, by running and finished games
+	public double getRoundsPerSecond(); // rounds played per second, over at least the last second
+	public long getBotTimeouts(); // responses that timed out, in running and finished games
+	public long getMinTimeBank(); // lowest time bank of any bot in a running game, -1 if no game is running
+	public double getResponseP50Millis(); // median response time of the bots of finished games
+	public double getResponseP99Millis(); // 99th percentile response time of the bots of finished games
+	public Map<String, Double> getPhaseP50Millis(); // median time of every phase of the rounds of finished games
+	public Map<String, Double> getPhaseP99Millis(); // 99th percentile time of every phase of the rounds of finished games
+	public void resetStatistics(); // forgets the finished games
+}
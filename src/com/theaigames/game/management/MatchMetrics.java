@@ -0,0 +1,178 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.game.management;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.metrics.LatencyHistogram;
+import com.theaigames.engine.metrics.PhaseTimes;
+import com.theaigames.game.AbstractGame;
+import com.theaigames.game.GameHandler;
+import com.theaigames.game.player.AbstractPlayer;
+
+/**
+ * MatchMetrics class
+ * 
+ * Shows one running game in JMX. The values are read from the game when
+ * JMX asks for them, while the game goes on, so the game doesn't do any
+ * extra work for them. Values that are being changed can be read halfway.
+ */
+public class MatchMetrics implements MatchMetricsMXBean {
+	
+	private final AbstractGame game;
+	private final List<String> botCommands;
+	private final ObjectName name;
+	private final long startTime;
+	
+	MatchMetrics(AbstractGame game, List<String> botCommands, ObjectName name) {
+		this.game = game;
+		this.botCommands = Collections.unmodifiableList(new ArrayList<String>(botCommands));
+		this.name = name;
+		this.startTime = System.nanoTime();
+	}
+	
+	/**
+	 * @return : name the game is registered with
+	 */
+	public ObjectName getName() {
+		return this.name;
+	}
+	
+	@Override
+	public List<String> getBotCommands() {
+		return this.botCommands;
+	}
+	
+	@Override
+	public int getRound() {
+		GameHandler processor = this.game.processor;
+		return (processor == null) ? 0 : processor.getRoundNumber();
+	}
+	
+	@Override
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startTime);
+	}
+	
+	@Override
+	public double getRoundsPerSecond() {
+		long elapsed = System.nanoTime() - this.startTime;
+		return (elapsed <= 0) ? 0 : getRound() * 1e9 / elapsed;
+	}
+	
+	@Override
+	public int[] getBotTimeouts() {
+		List<IOPlayer> bots = getBots();
+		int[] timeouts = new int[bots.size()];
+		for(int i = 0; i < timeouts.length; i++)
+			timeouts[i] = bots.get(i).getErrorCounter();
+		return timeouts;
+	}
+	
+	@Override
+	public long[] getTimeBanks() {
+		List<? extends AbstractPlayer> players = this.game.getPlayers();
+		long[] timeBanks = new long[players.size()];
+		for(int i = 0; i < timeBanks.length; i++)
+			timeBanks[i] = players.get(i).getTimeBank();
+		return timeBanks;
+	}
+	
+	@Override
+	public double[] getResponseP99Millis() {
+		List<IOPlayer> bots = getBots();
+		double[] responseTimes = new double[bots.size()];
+		for(int i = 0; i < responseTimes.length; i++)
+			responseTimes[i] = bots.get(i).getResponseLatency().getValueAtPercentile(99) / 1e6;
+		return responseTimes;
+	}
+	
+	@Override
+	public int[] getDumpSizes() {
+		List<IOPlayer> bots = getBots();
+		int[] sizes = new int[bots.size()];
+		for(int i = 0; i < sizes.length; i++)
+			sizes[i] = bots.get(i).getDumpSize();
+		return sizes;
+	}
+	
+	@Override
+	public int[] getStdoutSizes() {
+		List<IOPlayer> bots = getBots();
+		int[] sizes = new int[bots.size()];
+		for(int i = 0; i < sizes.length; i++)
+			sizes[i] = bots.get(i).getStdoutSize();
+		return sizes;
+	}
+	
+	@Override
+	public int[] getStderrSizes() {
+		List<IOPlayer> bots = getBots();
+		int[] sizes = new int[bots.size()];
+		for(int i = 0; i < sizes.length; i++)
+			sizes[i] = bots.get(i).getStderrSize();
+		return sizes;
+	}
+	
+	@Override
+	public Map<String, Double> getPhaseP50Millis() {
+		return getPercentileMillis(this.game.getPhaseTimes(), 50);
+	}
+	
+	@Override
+	public Map<String, Double> getPhaseP99Millis() {
+		return getPercentileMillis(this.game.getPhaseTimes(), 99);
+	}
+	
+	/**
+	 * @return : the bots of the game, in the order of the bot commands
+	 */
+	List<IOPlayer> getBots() {
+		if(this.game.engine == null)
+			return Collections.emptyList();
+		return this.game.engine.getPlayers();
+	}
+	
+	AbstractGame getGame() {
+		return this.game;
+	}
+	
+	/**
+	 * @return : given percentile of every phase in milliseconds, by phase name
+	 */
+	static <P extends Enum<P>> Map<String, Double> getPercentileMillis(PhaseTimes<P> phaseTimes, double percentile) {
+		Map<String, Double> times = new LinkedHashMap<String, Double>();
+		if(phaseTimes == null)
+			return times;
+		
+		for(P phase : phaseTimes.getPhases()) {
+			LatencyHistogram histogram = phaseTimes.getHistogram(phase);
+			times.put(phase.toString().toLowerCase(), histogram.getValueAtPercentile(percentile) / 1e6);
+		}
+		return times;
+	}
+}
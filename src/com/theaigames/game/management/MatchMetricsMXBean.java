@@ -0,0 +1,43 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.game.management;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MatchMetricsMXBean interface
+ * 
+ * What JMX shows about one running game, see MatchMetrics. The values of
+ * the bots are in the order of the bot commands.
+ */
+public interface MatchMetricsMXBean {
+	public List<String> getBotCommands(); // commands of the bots
+	public int getRound(); // round that is being played
+	public long getElapsedMillis(); // time since the game was set up
+	public double getRoundsPerSecond(); // rounds played per second since the game was set up
+	public int[] getBotTimeouts(); // responses that timed out
+	public long[] getTimeBanks(); // time left in the time banks in milliseconds
+	public double[] getResponseP99Millis(); // 99th percentile response times
+	public int[] getDumpSizes(); // characters in the dumps
+	public int[] getStdoutSizes(); // characters of stdout kept
+	public int[] getStderrSizes(); // characters of stderr kept
+	public Map<String, Double> getPhaseP50Millis(); // median time of every phase of the rounds
+	public Map<String, Double> getPhaseP99Millis(); // 99th percentile time of every phase of the rounds
+}
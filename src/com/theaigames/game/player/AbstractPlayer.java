@@ -18,8 +18,10 @@
 package com.theaigames.game.player;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.ProtocolEncoder;
 
 /**
  * AbstractPlayer class
@@ -40,6 +42,7 @@ public abstract class AbstractPlayer {
 	private long timeBank;
 	private long maxTimeBank;
 	private long timePerMove;
+	private long requestTime;
 	
 	public AbstractPlayer(String name, IOPlayer bot, long maxTimeBank, long timePerMove) {
 		this.name = name;
@@ -86,13 +89,28 @@ public abstract class AbstractPlayer {
 		this.timeBank = Math.min(this.timeBank + this.timePerMove, this.maxTimeBank);
 	}
 	
+	/**
+	 * Holds the lines sent to the player from now on, they are sent all
+	 * at once with the next move request or when flushBatch is called
+	 */
+	public void startBatch() {
+		this.bot.startBatch();
+	}
+	
+	/**
+	 * Sends the lines held since startBatch to the player
+	 */
+	public void flushBatch() {
+		this.bot.flushBatch();
+	}
+	
 	/**
 	 * Send one setting to the player
 	 * @param type : setting type
 	 * @param value : setting value
 	 */
 	public void sendSetting(String type, String value) {
-		sendLine(String.format("settings %s %s", type, value));
+		sendLine(this.bot.startLine().append(ProtocolEncoder.SETTINGS).append(type).append(value));
 	}
 	
 	/**
@@ -101,7 +119,7 @@ public abstract class AbstractPlayer {
 	 * @param value : setting value
 	 */
 	public void sendSetting(String type, int value) {
-		sendLine(String.format("settings %s %d", type, value));
+		sendLine(this.bot.startLine().append(ProtocolEncoder.SETTINGS).append(type).append(value));
 	}
 	
 	/**
@@ -111,7 +129,7 @@ public abstract class AbstractPlayer {
 	 * @param value : value of the update
 	 */
 	public void sendUpdate(String type, AbstractPlayer player, String value) {
-		sendLine(String.format("update %s %s %s", player.getName(), type, value));
+		sendLine(this.bot.startLine().append(ProtocolEncoder.UPDATE).append(player.getName()).append(type).append(value));
 	}
 	
 	/**
@@ -121,7 +139,7 @@ public abstract class AbstractPlayer {
 	 * @param value : value of the update
 	 */
 	public void sendUpdate(String type, AbstractPlayer player, int value) {
-		sendLine(String.format("update %s %s %d", player.getName(), type, value));
+		sendLine(this.bot.startLine().append(ProtocolEncoder.UPDATE).append(player.getName()).append(type).append(value));
 	}
 	
 	/**
@@ -130,7 +148,7 @@ public abstract class AbstractPlayer {
 	 * @param value
 	 */
 	public void sendUpdate(String type, String value) {
-		sendLine(String.format("update game %s %s", type, value));
+		sendLine(this.bot.startLine().append(ProtocolEncoder.UPDATE).append(ProtocolEncoder.GAME).append(type).append(value));
 	}
 	
 	/**
@@ -139,7 +157,7 @@ public abstract class AbstractPlayer {
 	 * @param value : value of the update
 	 */
 	public void sendUpdate(String type, int value) {
-		sendLine(String.format("update game %s %d", type, value));
+		sendLine(this.bot.startLine().append(ProtocolEncoder.UPDATE).append(ProtocolEncoder.GAME).append(type).append(value));
 	}
 	
 	/**
@@ -148,28 +166,52 @@ public abstract class AbstractPlayer {
 	 * @return : the bot's output
 	 */
 	public String requestMove(String moveType) {
-		long startTime = System.currentTimeMillis();
+		sendMoveRequest(moveType);
+		return getMoveResponse();
+	}
+	
+	/**
+	 * Asks the bot for given move type without waiting for the answer,
+	 * the time bank starts running now. Get the answer with getMoveResponse.
+	 * @param moveType : type of move the bot has to return
+	 */
+	public void sendMoveRequest(String moveType) {
 		
 		// write the request to the bot
-		sendLine(String.format("action %s %d", moveType, this.timeBank));
-
+		sendLine(this.bot.startLine().append(ProtocolEncoder.ACTION).append(moveType).append(this.timeBank));
+		
+		// the bot gets the held updates together with the request
+		this.requestTime = System.nanoTime();
+		this.bot.flushBatch();
+	}
+	
+	/**
+	 * Waits for the answer to the last sendMoveRequest, for at most the time
+	 * that was left in the time bank when the request was sent
+	 * @return : the bot's output
+	 */
+	public String getMoveResponse() {
+		
 		// wait for the bot to return his response
-		String response = this.bot.getResponse(this.timeBank);
+		String response = this.bot.getResponse(this.timeBank, this.requestTime);
 		
-		// update the timebank
-		long timeElapsed = System.currentTimeMillis() - startTime;
+		// update the timebank, with the time at which the bot responded
+		long responseTime = this.bot.getResponseTime();
+		if(responseTime < 0)
+			responseTime = System.nanoTime();
+		long timeElapsed = TimeUnit.NANOSECONDS.toMillis(Math.max(responseTime - this.requestTime, 0));
 		updateTimeBank(timeElapsed);
 		
 		return response;
 	}
 	
 	/**
-	 * Sends given string to bot
-	 * @param info
+	 * Sends given line to bot
+	 * @param line : the encoded line
 	 */
-	private void sendLine(String content) {
+	private void sendLine(ProtocolEncoder line) {
 		try {
-			this.bot.writeToBot(content);
+			this.bot.writeToBot(line);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -0,0 +1,35 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.tournament;
+
+import com.theaigames.game.AbstractGame;
+
+/**
+ * GameFactory interface
+ * 
+ * Creates the game instance for every match of a tournament
+ */
+public interface GameFactory {
+	
+	/**
+	 * @param seed : seed for all randomness of the game, both games of a
+	 * pairing with swapped sides get the same seed
+	 * @return : a new game instance that is not used for any other game
+	 */
+	public AbstractGame createGame(long seed);
+}
@@ -0,0 +1,96 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.tournament;
+
+import com.theaigames.game.MatchResult;
+
+/**
+ * Match class
+ * 
+ * One game of a tournament, with the bots in the order of their sides
+ */
+public class Match {
+	
+	private final int round;
+	private final Standing[] sides;
+	private final long seed;
+	private MatchResult result;
+	private Exception error;
+	
+	public Match(int round, long seed, Standing... sides) {
+		this.round = round;
+		this.seed = seed;
+		this.sides = sides;
+	}
+	
+	/**
+	 * @return : commands of the bots, in the order of their sides
+	 */
+	public String[] getBotCommands() {
+		String[] commands = new String[this.sides.length];
+		for(int i = 0; i < this.sides.length; i++)
+			commands[i] = this.sides[i].getBotCommand();
+		return commands;
+	}
+	
+	/**
+	 * @return : the bot that won, null if the game was a draw or failed
+	 */
+	public Standing getWinner() {
+		if(this.result == null || this.result.isDraw())
+			return null;
+		return this.sides[this.result.getWinnerIndex()];
+	}
+	
+	public int getRound() {
+		return this.round;
+	}
+	
+	public long getSeed() {
+		return this.seed;
+	}
+	
+	/**
+	 * @return : the bots, in the order of their sides
+	 */
+	public Standing[] getSides() {
+		return this.sides;
+	}
+	
+	/**
+	 * @return : result of the game, null if it isn't finished or failed
+	 */
+	public MatchResult getResult() {
+		return this.result;
+	}
+	
+	/**
+	 * @return : the exception that stopped the game, null if it didn't fail
+	 */
+	public Exception getError() {
+		return this.error;
+	}
+	
+	void setResult(MatchResult result) {
+		this.result = result;
+	}
+	
+	void setError(Exception error) {
+		this.error = error;
+	}
+}
@@ -0,0 +1,171 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.tournament;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.theaigames.engine.metrics.LatencyHistogram;
+
+/**
+ * Standing class
+ * 
+ * Results of one bot in a tournament. A win is worth 2 half points, a draw
+ * 1 and a bye counts as winning all games of the pairing. Games that failed
+ * don't count for either bot.
+ */
+public class Standing {
+	
+	/**
+	 * Orders standings by points, then by the points of their opponents
+	 * (Buchholz), then by their position in the roster
+	 */
+	public static final Comparator<Standing> RANKING = new Comparator<Standing>() {
+		@Override
+		public int compare(Standing s1, Standing s2) {
+			if(s1.getHalfPoints() != s2.getHalfPoints())
+				return s2.getHalfPoints() - s1.getHalfPoints();
+			if(s1.getBuchholz() != s2.getBuchholz())
+				return s2.getBuchholz() - s1.getBuchholz();
+			return s1.getIndex() - s2.getIndex();
+		}
+	};
+	
+	private final int index;
+	private final String botCommand;
+	private int wins;
+	private int draws;
+	private int losses;
+	private int byes;
+	private int byeWins;
+	private int errors;
+	private int firstSideGames;
+	private List<Standing> opponents;
+	private List<Standing> failedOpponents; // paired with, but the game failed
+	private LatencyHistogram responseLatency;
+	
+	public Standing(int index, String botCommand) {
+		this.index = index;
+		this.botCommand = botCommand;
+		this.opponents = new ArrayList<Standing>();
+		this.failedOpponents = new ArrayList<Standing>();
+		this.responseLatency = new LatencyHistogram();
+	}
+	
+	/**
+	 * @return : position of the bot in the tournament's roster
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+	
+	public String getBotCommand() {
+		return this.botCommand;
+	}
+	
+	public int getWins() {
+		return this.wins;
+	}
+	
+	public int getDraws() {
+		return this.draws;
+	}
+	
+	public int getLosses() {
+		return this.losses;
+	}
+	
+	public int getByes() {
+		return this.byes;
+	}
+	
+	/**
+	 * @return : number of games that failed, like a bot that couldn't be started
+	 */
+	public int getErrors() {
+		return this.errors;
+	}
+	
+	/**
+	 * @return : number of games the bot played on the first side
+	 */
+	public int getFirstSideGames() {
+		return this.firstSideGames;
+	}
+	
+	/**
+	 * @return : points in halves, so draws don't need fractions
+	 */
+	public int getHalfPoints() {
+		return 2 * (this.wins + this.byeWins) + this.draws;
+	}
+	
+	public double getPoints() {
+		return getHalfPoints() / 2.0;
+	}
+	
+	/**
+	 * @return : sum of the half points of the opponents of all played games
+	 */
+	public int getBuchholz() {
+		int buchholz = 0;
+		for(Standing opponent : this.opponents)
+			buchholz += opponent.getHalfPoints();
+		return buchholz;
+	}
+	
+	/**
+	 * @return : response times of the bot in all its games, see IOPlayer.getResponseLatency
+	 */
+	public LatencyHistogram getResponseLatency() {
+		return this.responseLatency;
+	}
+	
+	/**
+	 * @return : true if the bots played at least one game against each other,
+	 * also when that game failed
+	 */
+	public boolean hasPlayed(Standing opponent) {
+		return this.opponents.contains(opponent) || this.failedOpponents.contains(opponent);
+	}
+	
+	void addGame(Standing opponent, boolean firstSide, Standing winner, LatencyHistogram responseLatency) {
+		this.responseLatency.add(responseLatency);
+		this.opponents.add(opponent);
+		if(firstSide)
+			this.firstSideGames++;
+		
+		if(winner == null)
+			this.draws++;
+		else if(winner == this)
+			this.wins++;
+		else
+			this.losses++;
+	}
+	
+	void addBye(int wins) {
+		this.byes++;
+		this.byeWins += wins;
+	}
+	
+	void addError(Standing opponent) {
+		this.errors++;
+		this.failedOpponents.add(opponent);
+	}
+}
@@ -0,0 +1,318 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+
+import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.game.MatchRunner;
+import com.theaigames.game.RandomStream;
+
+/**
+ * Tournament class
+ * 
+ * Plays a roster of two player bots against each other, round robin or in
+ * Swiss rounds, on a MatchRunner. Each pairing plays a game from both sides
+ * by default, with the same seed for both games.
+ * 
+ * The runner's pool is a work-stealing pool with one thread per core by
+ * default. Every game is a separate task, so an idle thread takes the next
+ * game that is waiting instead of sitting behind a long one. All games of
+ * a round robin tournament are scheduled at once. A Swiss round is paired
+ * from the standings after the previous round, so it starts when the
+ * last game of that round is done.
+ * 
+ * Results are counted on the thread that plays the tournament, in the
+ * order the games finish.
+ */
+public class Tournament {
+	
+	private static final int MAX_PAIRING_STEPS = 100000; // per number of rematches tried
+	
+	private final GameFactory gameFactory;
+	private final List<Standing> standings; // in roster order
+	private final MatchRunner runner;
+	private RandomStream seeds;
+	private boolean sideSwaps;
+	private int gamesPerPairing;
+	private TournamentListener listener;
+	private int scheduled;
+	private int finished;
+	
+	/**
+	 * @param gameFactory : creates the game of every match
+	 * @param botCommands : the roster, commands to start the bots
+	 */
+	public Tournament(GameFactory gameFactory, List<String> botCommands) {
+		this(gameFactory, botCommands, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * @param gameFactory : creates the game of every match
+	 * @param botCommands : the roster, commands to start the bots
+	 * @param threads : maximum number of games played at the same time
+	 */
+	public Tournament(GameFactory gameFactory, List<String> botCommands, int threads) {
+		this(gameFactory, botCommands, new MatchRunner(Executors.newWorkStealingPool(threads)));
+	}
+	
+	/**
+	 * @param gameFactory : creates the game of every match
+	 * @param botCommands : the roster, commands to start the bots
+	 * @param runner : runner the games are played on
+	 */
+	public Tournament(GameFactory gameFactory, List<String> botCommands, MatchRunner runner) {
+		if(botCommands.size() < 2)
+			throw new IllegalArgumentException("A tournament needs at least two bots.");
+		
+		this.gameFactory = gameFactory;
+		this.runner = runner;
+		this.standings = new ArrayList<Standing>();
+		for(int i = 0; i < botCommands.size(); i++)
+			this.standings.add(new Standing(i, botCommands.get(i)));
+		
+		this.seeds = new RandomStream();
+		this.sideSwaps = true;
+		this.gamesPerPairing = 1;
+		this.scheduled = 0;
+		this.finished = 0;
+	}
+	
+	/**
+	 * Plays every bot against every other bot
+	 * @return : the standings, best first
+	 */
+	public List<Standing> playRoundRobin() throws InterruptedException {
+		CompletionService<Match> completion = new ExecutorCompletionService<Match>(this.runner.getExecutor());
+		
+		int matches = 0;
+		for(int i = 0; i < this.standings.size(); i++)
+			for(int j = i + 1; j < this.standings.size(); j++)
+				matches += schedulePairing(completion, 1, this.standings.get(i), this.standings.get(j));
+		
+		awaitMatches(completion, matches);
+		
+		List<Standing> ranking = getStandings();
+		if(this.listener != null)
+			this.listener.onRoundFinished(1, ranking);
+		return ranking;
+	}
+	
+	/**
+	 * Plays Swiss rounds: every round pairs bots with (nearly) the same points
+	 * that haven't played each other yet. With an odd number of bots, the
+	 * lowest ranked bot with the fewest byes sits out and gets the points of
+	 * winning all games of a pairing.
+	 * @param rounds : number of rounds, see getDefaultSwissRounds
+	 * @return : the standings, best first
+	 */
+	public List<Standing> playSwiss(int rounds) throws InterruptedException {
+		CompletionService<Match> completion = new ExecutorCompletionService<Match>(this.runner.getExecutor());
+		
+		for(int round = 1; round <= rounds; round++) {
+			List<Standing> unpaired = getStandings();
+			
+			if(unpaired.size() % 2 != 0)
+				unpaired.remove(getByeIndex(unpaired)).addBye(this.gamesPerPairing * (this.sideSwaps ? 2 : 1));
+			
+			int matches = 0;
+			for(Standing[] pairing : pair(unpaired))
+				matches += schedulePairing(completion, round, pairing[0], pairing[1]);
+			
+			awaitMatches(completion, matches);
+			
+			if(this.listener != null)
+				this.listener.onRoundFinished(round, getStandings());
+		}
+		return getStandings();
+	}
+	
+	/**
+	 * @return : number of Swiss rounds that is enough to find a single winner,
+	 * the binary logarithm of the number of bots rounded up
+	 */
+	public static int getDefaultSwissRounds(int bots) {
+		return 32 - Integer.numberOfLeadingZeros(Math.max(bots - 1, 1));
+	}
+	
+	/**
+	 * Stops the runner after the scheduled games are played
+	 */
+	public void shutdown() {
+		this.runner.shutdown();
+	}
+	
+	/**
+	 * @return : the standings, best first
+	 */
+	public List<Standing> getStandings() {
+		List<Standing> ranking = new ArrayList<Standing>(this.standings);
+		Collections.sort(ranking, Standing.RANKING);
+		return ranking;
+	}
+	
+	/**
+	 * @param seed : seed for the seeds of the games, a random seed is used if not set
+	 */
+	public void setSeed(long seed) {
+		this.seeds = new RandomStream(seed);
+	}
+	
+	/**
+	 * @param sideSwaps : true to play every game of a pairing from both sides, the default
+	 */
+	public void setSideSwaps(boolean sideSwaps) {
+		this.sideSwaps = sideSwaps;
+	}
+	
+	/**
+	 * @param gamesPerPairing : number of seeds every pairing plays, 1 by default
+	 */
+	public void setGamesPerPairing(int gamesPerPairing) {
+		this.gamesPerPairing = gamesPerPairing;
+	}
+	
+	public void setListener(TournamentListener listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Pairs the bots of a Swiss round from the top, every bot with the best
+	 * ranked bot it can play, with rematches only when no other pairing is
+	 * found. The search for a pairing with a given number of rematches gives
+	 * up after MAX_PAIRING_STEPS, so late rounds with many bots stay fast at
+	 * the cost of an extra rematch. With as many rematches as pairs allowed
+	 * the first pairing tried is taken, so this always ends.
+	 * @param ranking : the bots to pair, an even number, best first
+	 * @return : the pairs, best first
+	 */
+	static List<Standing[]> pair(List<Standing> ranking) {
+		for(int rematches = 0; ; rematches++) {
+			List<Standing[]> pairings = pair(ranking, rematches, new int[] { MAX_PAIRING_STEPS });
+			if(pairings != null)
+				return pairings;
+		}
+	}
+	
+	// pairs so that the rest can still be paired with at most given number of
+	// rematches, returns null if that's not possible or no steps are left
+	private static List<Standing[]> pair(List<Standing> unpaired, int rematches, int[] stepsLeft) {
+		if(unpaired.isEmpty())
+			return new ArrayList<Standing[]>();
+		if(--stepsLeft[0] < 0)
+			return null;
+		
+		Standing standing = unpaired.get(0);
+		for(int i = 1; i < unpaired.size(); i++) {
+			Standing opponent = unpaired.get(i);
+			int rematchesLeft = standing.hasPlayed(opponent) ? rematches - 1 : rematches;
+			if(rematchesLeft < 0)
+				continue;
+			
+			List<Standing> rest = new ArrayList<Standing>(unpaired);
+			rest.remove(i);
+			rest.remove(0);
+			List<Standing[]> pairings = pair(rest, rematchesLeft, stepsLeft);
+			if(pairings != null) {
+				pairings.add(0, new Standing[] { standing, opponent });
+				return pairings;
+			}
+		}
+		return null;
+	}
+	
+	// the lowest ranked bot of the ones with the fewest byes
+	private int getByeIndex(List<Standing> ranking) {
+		int bye = ranking.size() - 1;
+		for(int i = bye - 1; i >= 0; i--)
+			if(ranking.get(i).getByes() < ranking.get(bye).getByes())
+				bye = i;
+		return bye;
+	}
+	
+	// returns the number of games scheduled
+	private int schedulePairing(CompletionService<Match> completion, int round, Standing standing1, Standing standing2) {
+		// without swaps, the bot that played less often on the first side gets it
+		if(!this.sideSwaps && standing2.getFirstSideGames() < standing1.getFirstSideGames()) {
+			Standing standing = standing1;
+			standing1 = standing2;
+			standing2 = standing;
+		}
+		
+		int matches = 0;
+		for(int i = 0; i < this.gamesPerPairing; i++) {
+			long seed = this.seeds.nextLong();
+			schedule(completion, new Match(round, seed, standing1, standing2));
+			matches++;
+			
+			if(this.sideSwaps) {
+				schedule(completion, new Match(round, seed, standing2, standing1));
+				matches++;
+			}
+		}
+		return matches;
+	}
+	
+	private void schedule(CompletionService<Match> completion, final Match match) {
+		completion.submit(new Callable<Match>() {
+			@Override
+			public Match call() {
+				try {
+					match.setResult(gameFactory.createGame(match.getSeed()).playMatch(match.getBotCommands()));
+				} catch (Exception e) {
+					match.setError(e);
+				}
+				return match;
+			}
+		});
+		this.scheduled++;
+	}
+	
+	private void awaitMatches(CompletionService<Match> completion, int matches) throws InterruptedException {
+		for(int i = 0; i < matches; i++) {
+			Match match;
+			try {
+				match = completion.take().get();
+			} catch (ExecutionException e) { // the task catches everything the game throws
+				throw new IllegalStateException(e.getCause());
+			}
+			
+			Standing[] sides = match.getSides();
+			if(match.getResult() == null) {
+				sides[0].addError(sides[1]);
+				sides[1].addError(sides[0]);
+			} else {
+				Standing winner = match.getWinner();
+				List<IOPlayer> bots = match.getResult().getBots();
+				sides[0].addGame(sides[1], true, winner, bots.get(0).getResponseLatency());
+				sides[1].addGame(sides[0], false, winner, bots.get(1).getResponseLatency());
+			}
+			
+			this.finished++;
+			if(this.listener != null)
+				this.listener.onMatchFinished(match, this.finished, this.scheduled);
+		}
+	}
+}
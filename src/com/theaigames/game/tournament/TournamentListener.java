@@ -0,0 +1,45 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.tournament;
+
+import java.util.List;
+
+/**
+ * TournamentListener interface
+ * 
+ * Gets the progress of a tournament. All calls are made on the thread that
+ * plays the tournament, one by one.
+ */
+public interface TournamentListener {
+	
+	/**
+	 * Called for every match when its result has been counted
+	 * @param match : the match
+	 * @param finished : number of matches finished so far
+	 * @param scheduled : number of matches scheduled so far
+	 */
+	public void onMatchFinished(Match match, int finished, int scheduled);
+	
+	/**
+	 * Called when all matches of a round are finished, round robin
+	 * tournaments have only one round
+	 * @param round : the round number, starting at 1
+	 * @param standings : the standings after the round, best first
+	 */
+	public void onRoundFinished(int round, List<Standing> standings);
+}
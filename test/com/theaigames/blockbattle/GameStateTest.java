@@ -0,0 +1,127 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.theaigames.blockbattle.player.Player;
+
+/**
+ * Tests Processor.snapshot(), restore() and rounds played from a snapshot
+ */
+public class GameStateTest {
+	
+	private ArrayList<Player> players;
+	private Processor processor;
+	
+	@Before
+	public void setUp() {
+		this.players = new ArrayList<Player>();
+		this.processor = ScriptedBot.createGame(42, ScriptedBot.SPREAD, this.players);
+	}
+	
+	@Test
+	public void restoreGoesBackToSnapshot() {
+		playRounds(10);
+		GameState state = this.processor.snapshot();
+		String before = describe();
+		
+		playRounds(10);
+		assertFalse(before.equals(describe()));
+		
+		this.processor.restore(state);
+		assertEquals(10, this.processor.getRoundNumber());
+		assertEquals(before, describe());
+	}
+	
+	@Test
+	public void whatIfRoundsGiveTheSameResultEveryTime() {
+		playRounds(5);
+		GameState state = this.processor.snapshot();
+		String before = describe();
+		
+		GameState first = this.processor.playRound(state, "left,left,drop", "turnright,right,drop");
+		String firstResult = describe();
+		GameState second = this.processor.playRound(state, "left,left,drop", "turnright,right,drop");
+		
+		assertEquals(6, first.getRound());
+		assertEquals(first.getNextShape(), second.getNextShape());
+		assertEquals(firstResult, describe());
+		
+		// the what-if rounds didn't change the snapshot they started from
+		this.processor.restore(state);
+		assertEquals(5, this.processor.getRoundNumber());
+		assertEquals(before, describe());
+	}
+	
+	@Test
+	public void whatIfRoundMatchesPlayedRound() {
+		this.players.clear();
+		this.processor = ScriptedBot.createGame(7, new String[] { "drop" }, this.players);
+		playRounds(5);
+		GameState state = this.processor.snapshot();
+		
+		playRounds(1);
+		String played = describe();
+		
+		GameState whatIf = this.processor.playRound(state, "drop", "drop");
+		assertEquals(6, whatIf.getRound());
+		assertEquals(played, describe());
+	}
+	
+	@Test
+	public void whatIfRoundsAreNotTimed() {
+		playRounds(3);
+		GameState state = this.processor.snapshot();
+		long spawns = this.processor.getPhaseTimes().getHistogram(RoundPhase.SPAWN).getCount();
+		long moves = this.processor.getPhaseTimes().getHistogram(RoundPhase.MOVES).getCount();
+		
+		this.processor.playRound(state, "drop", "drop");
+		
+		assertEquals(3, spawns);
+		assertEquals(spawns, this.processor.getPhaseTimes().getHistogram(RoundPhase.SPAWN).getCount());
+		assertEquals(moves, this.processor.getPhaseTimes().getHistogram(RoundPhase.MOVES).getCount());
+	}
+	
+	private void playRounds(int rounds) {
+		int last = this.processor.getRoundNumber() + rounds;
+		for(int round = this.processor.getRoundNumber() + 1; round <= last; round++)
+			this.processor.playRound(round);
+	}
+	
+	// everything about the players that the rounds change
+	private String describe() {
+		StringBuilder description = new StringBuilder();
+		for(Player player : this.players) {
+			description.append(player.getField().toString(false, false))
+				.append(" points ").append(player.getRowPoints())
+				.append(" combo ").append(player.getCombo())
+				.append(" skips ").append(player.getSkips())
+				.append(" shape ").append(player.getCurrentShape().getType())
+				.append(' ').append(player.getCurrentShape().getPositionString())
+				.append('\n');
+		}
+		return description.toString();
+	}
+}
@@ -0,0 +1,108 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle;
+
+import java.util.ArrayList;
+
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.player.Player;
+import com.theaigames.engine.io.IOPlayer;
+import com.theaigames.engine.io.ProtocolEncoder;
+
+/**
+ * ScriptedBot class
+ * 
+ * A bot that lives in memory and answers every action request right away
+ * with the next moves from its script, so tests and benchmarks play whole
+ * games without a bot process.
+ */
+public class ScriptedBot extends IOPlayer {
+	
+	public static final int FIELD_WIDTH = 10;
+	public static final int FIELD_HEIGHT = 20;
+	public static final long TIMEBANK = 10000;
+	public static final long TIME_PER_MOVE = 500;
+	
+	// spreads the pieces over the field, so rows get cleared and garbage is sent
+	public static final String[] SPREAD = { "left,left,left,left,drop", "turnright,left,left,drop", "drop",
+			"right,right,drop", "turnleft,right,right,right,right,drop", "left,left,down,down,drop",
+			"turnright,right,right,right,drop", "right,right,right,right,right,drop", "turnright,drop" };
+	
+	private String[] script;
+	private int next;
+	
+	/**
+	 * @param script : responses, used in order and repeated from the start
+	 */
+	public ScriptedBot(String idString, String... script) {
+		super(idString);
+		this.script = script;
+		this.next = 0;
+	}
+	
+	/**
+	 * Creates the players of a two player game, the second player gets the
+	 * moves of the script in a different order
+	 * @param players : list the players are added to
+	 * @return : the processor of the game
+	 */
+	public static Processor createGame(long seed, String[] script, ArrayList<Player> players) {
+		GameRandom random = new GameRandom(seed, 2);
+		for(int i = 0; i < 2; i++) {
+			Field field = new Field(FIELD_WIDTH, FIELD_HEIGHT, random.getGarbageRandom(i));
+			ScriptedBot bot = new ScriptedBot(i + "", rotate(script, i));
+			players.add(new Player("player" + (i + 1), bot, TIMEBANK, TIME_PER_MOVE, field));
+		}
+		return new Processor(players, FIELD_WIDTH, FIELD_HEIGHT, random.getShapeRandom());
+	}
+	
+	@Override
+	protected void sendToBot(ProtocolEncoder line) {
+		if(isAction(line)) {
+			setResponse(this.script[this.next]);
+			this.next = (this.next + 1) % this.script.length;
+		}
+	}
+	
+	@Override
+	protected void flushToBot() {
+		// nothing is buffered
+	}
+	
+	@Override
+	protected void stopBot() {
+		// there is no process
+	}
+	
+	private boolean isAction(ProtocolEncoder line) {
+		byte[] action = ProtocolEncoder.ACTION;
+		if(line.getLength() < action.length)
+			return false;
+		for(int i = 0; i < action.length; i++)
+			if(line.getBuffer()[i] != action[i])
+				return false;
+		return true;
+	}
+	
+	private static String[] rotate(String[] moves, int amount) {
+		String[] rotated = new String[moves.length];
+		for(int i = 0; i < moves.length; i++)
+			rotated[i] = moves[(i + amount) % moves.length];
+		return rotated;
+	}
+}
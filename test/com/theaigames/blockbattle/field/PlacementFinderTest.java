@@ -0,0 +1,220 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.theaigames.blockbattle.moves.MoveType;
+
+/**
+ * Plays the moves the PlacementFinder gives with Shape, the way the
+ * Processor does, and checks where the shape ends up
+ */
+public class PlacementFinderTest {
+	
+	// uneven stack with an overhang and a hole
+	private static final String RUGGED = "0,0,0,0,0,0,0,0,0,0;0,0,0,0,0,0,0,0,0,0;0,0,0,0,0,0,0,0,0,0;"
+			+ "0,0,0,0,0,0,0,0,0,0;0,0,0,0,0,0,0,0,0,0;0,0,0,0,0,0,0,0,0,0;0,2,2,0,0,0,0,0,0,0;"
+			+ "0,2,0,0,0,0,0,2,0,0;2,2,0,0,2,0,0,2,2,0;2,2,2,0,2,2,0,2,2,2;2,2,2,2,2,0,2,2,2,2;3,3,3,3,3,3,3,3,3,3";
+	
+	// T-spin double slot under an overhang
+	private static final String T_SLOT = "0,0,0,0,0,0,0,0,0,0;0,0,0,0,0,0,0,0,0,0;0,0,0,0,0,0,0,0,0,0;"
+			+ "0,0,0,2,0,0,0,0,0,0;2,2,2,0,0,0,2,2,2,2;2,2,2,2,0,2,2,2,2,2";
+	
+	private static final ShapeType[] SHAPES = { ShapeType.I, ShapeType.J, ShapeType.L, ShapeType.O,
+			ShapeType.S, ShapeType.T, ShapeType.Z };
+	
+	@Test
+	public void findsEveryPlacementOnEmptyField() {
+		PlacementFinder finder = new PlacementFinder();
+		Field field = new Field(10, 20);
+		
+		assertEquals(17, finder.find(field, ShapeType.I));
+		assertEquals(34, finder.find(field, ShapeType.J));
+		assertEquals(34, finder.find(field, ShapeType.L));
+		assertEquals(9, finder.find(field, ShapeType.O));
+		assertEquals(17, finder.find(field, ShapeType.S));
+		assertEquals(34, finder.find(field, ShapeType.T));
+		assertEquals(17, finder.find(field, ShapeType.Z));
+	}
+	
+	@Test
+	public void movesFreezeShapeOnPlacement() {
+		PlacementFinder finder = new PlacementFinder();
+		Field field = createField(10, 12, RUGGED);
+		
+		for(ShapeType type : SHAPES) {
+			int count = finder.find(field, type);
+			assertTrue(count > 0);
+			
+			List<String> placements = new ArrayList<String>();
+			for(int placement = 0; placement < count; placement++) {
+				List<MoveType> moves = finder.getMoves(placement);
+				Result result = play(field, type, moves);
+				String name = type + " " + moves;
+				
+				assertEquals(name, getCells(finder, placement), result.cells);
+				assertEquals(name, finder.getMoveCount(placement), result.moveCount);
+				assertFalse(name, placements.contains(result.cells));
+				placements.add(result.cells);
+			}
+		}
+	}
+	
+	@Test
+	public void foundMovesAreOptimal() {
+		PlacementFinder finder = new PlacementFinder();
+		Field field = createField(10, 12, RUGGED);
+		
+		for(ShapeType type : SHAPES) {
+			int count = finder.find(field, type);
+			List<List<MoveType>> allMoves = new ArrayList<List<MoveType>>();
+			for(int placement = 0; placement < count; placement++)
+				allMoves.add(finder.getMoves(placement));
+			
+			for(List<MoveType> moves : allMoves) {
+				assertTrue(type + " " + moves, finder.isOptimal(field, type, moves));
+				
+				// turning back and forth at the start ends in the same place
+				List<MoveType> longer = new ArrayList<MoveType>(Arrays.asList(MoveType.TURNLEFT, MoveType.TURNRIGHT));
+				longer.addAll(moves);
+				assertFalse(type + " " + longer, finder.isOptimal(field, type, longer));
+			}
+		}
+	}
+	
+	@Test
+	public void skipIsNotOptimal() {
+		PlacementFinder finder = new PlacementFinder();
+		assertFalse(finder.isOptimal(new Field(10, 20), ShapeType.T, Collections.singletonList(MoveType.SKIP)));
+	}
+	
+	@Test
+	public void noPlacementsWhenShapeCantSpawn() {
+		PlacementFinder finder = new PlacementFinder();
+		Field field = createField(10, 3, "2,2,2,2,2,2,2,2,2,0;2,2,2,2,2,2,2,2,2,0;2,2,2,2,2,2,2,2,2,0");
+		
+		assertEquals(0, finder.find(field, ShapeType.T));
+		assertEquals(0, finder.getPlacementCount());
+		assertFalse(finder.isOptimal(field, ShapeType.T, Collections.singletonList(MoveType.DROP)));
+	}
+	
+	@Test
+	public void tSpinMovesEndInTSpin() {
+		PlacementFinder finder = new PlacementFinder();
+		Field field = createField(10, 6, T_SLOT);
+		
+		int count = finder.find(field, ShapeType.T);
+		int tSpins = 0;
+		for(int placement = 0; placement < count; placement++) {
+			if(!finder.isTSpinPossible(placement))
+				continue;
+			
+			List<MoveType> moves = new ArrayList<MoveType>();
+			finder.getTSpinMoves(placement, moves);
+			Result result = play(field, ShapeType.T, moves);
+			
+			assertTrue(moves.toString(), result.tSpin);
+			assertEquals(moves.toString(), getCells(finder, placement), result.cells);
+			assertEquals(moves.toString(), finder.getTSpinMoveCount(placement), result.moveCount);
+			tSpins++;
+		}
+		assertTrue(tSpins > 0);
+	}
+	
+	private static Field createField(int width, int height, String cells) {
+		Field field = new Field(width, height);
+		field.setCells(cells);
+		return field;
+	}
+	
+	// plays the moves on a copy of the field like Processor.executeMovesForPlayer
+	private static Result play(Field field, ShapeType type, List<MoveType> moves) {
+		Field copy = new Field(field.getWidth(), field.getHeight());
+		copy.restore(field.snapshot());
+		Shape shape = new Shape(type, copy);
+		assertTrue(shape.spawnShape());
+		
+		MoveType lastMove1 = null;
+		MoveType lastMove2 = null;
+		int lastX = -1;
+		int lastY = -1;
+		Result result = new Result();
+		result.moveCount = moves.size();
+		
+		for(MoveType move : moves) {
+			lastX = shape.getLocation().x;
+			lastY = shape.getLocation().y;
+			if(shape.isFrozen())
+				break;
+			
+			switch(move) {
+				case LEFT: shape.oneLeft(); break;
+				case RIGHT: shape.oneRight(); break;
+				case TURNLEFT: shape.turnLeft(); break;
+				case TURNRIGHT: shape.turnRight(); break;
+				case DOWN: shape.oneDown(); break;
+				case DROP: shape.drop(); break;
+				default: throw new IllegalArgumentException(move.toString());
+			}
+			lastMove2 = lastMove1;
+			lastMove1 = move;
+		}
+		
+		if(!shape.isFrozen()) { // the engine drops the shape, that's an extra move unless it's resting
+			int y = shape.getLocation().y;
+			shape.drop();
+			if(shape.getLocation().y != y)
+				result.moveCount++;
+			else
+				result.tSpin = shape.checkTSpin(lastMove1, lastMove2, lastX, lastY);
+		} else {
+			result.tSpin = shape.checkTSpin(lastMove1, lastMove2, lastX, lastY);
+		}
+		
+		List<String> cells = new ArrayList<String>();
+		for(int block = 0; block < Shape.BLOCKS; block++)
+			cells.add(shape.getBlockX(block) + "," + shape.getBlockY(block));
+		Collections.sort(cells);
+		result.cells = cells.toString();
+		return result;
+	}
+	
+	private static String getCells(PlacementFinder finder, int placement) {
+		List<String> cells = new ArrayList<String>();
+		for(int block = 0; block < Shape.BLOCKS; block++)
+			cells.add(finder.getBlockX(placement, block) + "," + finder.getBlockY(placement, block));
+		Collections.sort(cells);
+		return cells.toString();
+	}
+	
+	private static class Result {
+		String cells;
+		int moveCount;
+		boolean tSpin;
+	}
+}
@@ -0,0 +1,101 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.theaigames.blockbattle.Processor;
+import com.theaigames.blockbattle.ScriptedBot;
+import com.theaigames.blockbattle.player.Player;
+import com.theaigames.blockbattle.player.PlayerState;
+
+/**
+ * Writes a whole game to a replay and checks that reading it back gives
+ * the same states as the game stored
+ */
+public class ReplayTest {
+	
+	private static final long SEED = 42;
+	private static final int MAX_ROUNDS = 300;
+	
+	@Test
+	public void readsBackWhatWasWritten() throws IOException {
+		ArrayList<Player> players = new ArrayList<Player>();
+		Processor processor = ScriptedBot.createGame(SEED, ScriptedBot.SPREAD, players);
+		for(int round = 1; !processor.isGameOver() && round <= MAX_ROUNDS; round++)
+			processor.playRound(round);
+		int winner = players.indexOf(processor.getWinner());
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ReplayWriter writer = new ReplayWriter(out);
+		writer.writeHeader(SEED, ScriptedBot.FIELD_WIDTH, ScriptedBot.FIELD_HEIGHT, ScriptedBot.TIMEBANK, ScriptedBot.TIME_PER_MOVE, players);
+		for(int round = 0; round <= processor.getRoundNumber(); round++)
+			writer.writeRound(round, players);
+		writer.writeEnd(winner);
+		writer.close();
+		
+		ReplayReader reader = new ReplayReader(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(SEED, reader.getSeed());
+		assertEquals(ScriptedBot.FIELD_WIDTH, reader.getFieldWidth());
+		assertEquals(ScriptedBot.FIELD_HEIGHT, reader.getFieldHeight());
+		assertEquals(ScriptedBot.TIMEBANK, reader.getTimebank());
+		assertEquals(ScriptedBot.TIME_PER_MOVE, reader.getTimePerMove());
+		assertEquals(Arrays.asList("player1", "player2"), reader.getPlayerNames());
+		
+		for(int round = 0; round <= processor.getRoundNumber(); round++) {
+			ReplayRound replayRound = reader.readRound();
+			assertNotNull("round " + round, replayRound);
+			assertEquals(round, replayRound.getRound());
+			
+			for(int i = 0; i < players.size(); i++)
+				assertStatesEqual(players.get(i).getPlayedGame().get(round), replayRound.getStates(i));
+		}
+		assertNull(reader.readRound());
+		assertEquals(winner, reader.getWinner());
+		reader.close();
+	}
+	
+	private static void assertStatesEqual(List<PlayerState> expected, List<PlayerState> actual) {
+		assertEquals(expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++) {
+			PlayerState expectedState = expected.get(i);
+			PlayerState actualState = actual.get(i);
+			String state = "round " + expectedState.getRound() + " state " + i;
+			
+			assertEquals(state, expectedState.getRound(), actualState.getRound());
+			assertEquals(state, expectedState.getMoveString(), actualState.getMoveString());
+			assertEquals(state, expectedState.getNextShape(), actualState.getNextShape());
+			assertEquals(state, expectedState.getCombo(), actualState.getCombo());
+			assertEquals(state, expectedState.getSkips(), actualState.getSkips());
+			assertEquals(state, expectedState.getPoints(), actualState.getPoints());
+			assertEquals(state, expectedState.isShapeInField(), actualState.isShapeInField());
+			assertEquals(state, expectedState.getFieldString(), actualState.getFieldString());
+		}
+	}
+}
@@ -0,0 +1,99 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/**
+ * Checks that RandomStream gives the numbers of SplittableRandom
+ */
+public class RandomStreamTest {
+	
+	private static final long[] SEEDS = { 0, 1, -1, 42, 0x9e3779b97f4a7c15L, Long.MIN_VALUE };
+	private static final int[] BOUNDS = { 1, 2, 7, 10, 64, 1000, 0x40000001, Integer.MAX_VALUE };
+	private static final int NUMBERS = 1000;
+	
+	@Test
+	public void nextLongMatchesSplittableRandom() {
+		for(long seed : SEEDS) {
+			RandomStream stream = new RandomStream(seed);
+			SplittableRandom random = new SplittableRandom(seed);
+			for(int i = 0; i < NUMBERS; i++)
+				assertEquals(random.nextLong(), stream.nextLong());
+		}
+	}
+	
+	@Test
+	public void nextIntMatchesSplittableRandom() {
+		for(long seed : SEEDS) {
+			RandomStream stream = new RandomStream(seed);
+			SplittableRandom random = new SplittableRandom(seed);
+			for(int i = 0; i < NUMBERS; i++)
+				assertEquals(random.nextInt(), stream.nextInt());
+		}
+	}
+	
+	@Test
+	public void boundedNextIntMatchesSplittableRandom() {
+		for(long seed : SEEDS) {
+			for(int bound : BOUNDS) {
+				RandomStream stream = new RandomStream(seed);
+				SplittableRandom random = new SplittableRandom(seed);
+				for(int i = 0; i < NUMBERS; i++)
+					assertEquals(random.nextInt(bound), stream.nextInt(bound));
+			}
+		}
+	}
+	
+	@Test
+	public void splitMatchesSplittableRandom() {
+		RandomStream stream = new RandomStream(42);
+		SplittableRandom random = new SplittableRandom(42);
+		for(int split = 0; split < 10; split++) {
+			RandomStream streamSplit = stream.split();
+			SplittableRandom randomSplit = random.split();
+			for(int i = 0; i < NUMBERS; i++)
+				assertEquals(randomSplit.nextLong(), streamSplit.nextLong());
+			assertEquals(random.nextLong(), stream.nextLong());
+		}
+	}
+	
+	@Test
+	public void copyContinuesWithTheSameNumbers() {
+		RandomStream stream = new RandomStream(42);
+		stream.nextLong();
+		RandomStream copy = stream.copy();
+		RandomStream restored = new RandomStream(7);
+		restored.setState(stream);
+		
+		for(int i = 0; i < NUMBERS; i++) {
+			long number = stream.nextLong();
+			assertEquals(number, copy.nextLong());
+			assertEquals(number, restored.nextLong());
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void boundMustBePositive() {
+		new RandomStream(42).nextInt(0);
+	}
+}
@@ -0,0 +1,153 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.game.tournament;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.theaigames.engine.metrics.LatencyHistogram;
+
+/**
+ * Tests the pairing of Swiss rounds
+ */
+public class SwissPairingTest {
+	
+	@Test
+	public void pairsFromTheTop() {
+		List<Standing> ranking = createStandings(4);
+		
+		List<Standing[]> pairings = Tournament.pair(ranking);
+		
+		assertPairing(ranking, pairings, 0, 0, 1);
+		assertPairing(ranking, pairings, 1, 2, 3);
+		assertEquals(0, countRematches(pairings));
+	}
+	
+	@Test
+	public void avoidsRematchThatGreedyPairingMakes() {
+		List<Standing> ranking = createStandings(4);
+		play(ranking.get(0), ranking.get(1));
+		play(ranking.get(1), ranking.get(3));
+		
+		// pairing 0 with 2 first would leave 1 and 3, who played already
+		List<Standing[]> pairings = Tournament.pair(ranking);
+		
+		assertPairing(ranking, pairings, 0, 0, 3);
+		assertPairing(ranking, pairings, 1, 1, 2);
+		assertEquals(0, countRematches(pairings));
+	}
+	
+	@Test
+	public void failedPairingCountsAsPlayed() {
+		List<Standing> ranking = createStandings(4);
+		ranking.get(0).addError(ranking.get(1));
+		ranking.get(1).addError(ranking.get(0));
+		
+		List<Standing[]> pairings = Tournament.pair(ranking);
+		
+		assertPairing(ranking, pairings, 0, 0, 2);
+		assertEquals(0, countRematches(pairings));
+	}
+	
+	@Test
+	public void rematchesOnlyWhenNeeded() {
+		List<Standing> ranking = createStandings(4);
+		play(ranking.get(0), ranking.get(1));
+		play(ranking.get(0), ranking.get(2));
+		play(ranking.get(0), ranking.get(3));
+		play(ranking.get(1), ranking.get(2));
+		
+		List<Standing[]> pairings = Tournament.pair(ranking);
+		
+		// bot 0 played everybody, the others should not get a rematch as well
+		assertPairing(ranking, pairings, 0, 0, 1);
+		assertPairing(ranking, pairings, 1, 2, 3);
+		assertEquals(1, countRematches(pairings));
+	}
+	
+	@Test(timeout = 10000)
+	public void manyBotsWithoutRematchFreePairing() {
+		// everybody played everybody except within two groups of odd size, so
+		// every pairing has a rematch and the search can't try them all
+		List<Standing> ranking = createStandings(20);
+		for(int i = 0; i < ranking.size(); i++)
+			for(int j = i + 1; j < ranking.size(); j++)
+				if((i < 9) != (j < 9))
+					play(ranking.get(i), ranking.get(j));
+		
+		List<Standing[]> pairings = Tournament.pair(ranking);
+		
+		assertValidPairing(ranking, pairings);
+		assertTrue(countRematches(pairings) >= 1);
+	}
+	
+	@Test(timeout = 10000)
+	public void manyBotsThatPlayedEverybody() {
+		List<Standing> ranking = createStandings(20);
+		for(int i = 0; i < ranking.size(); i++)
+			for(int j = i + 1; j < ranking.size(); j++)
+				play(ranking.get(i), ranking.get(j));
+		
+		List<Standing[]> pairings = Tournament.pair(ranking);
+		
+		assertValidPairing(ranking, pairings);
+		assertEquals(10, countRematches(pairings));
+	}
+	
+	private static List<Standing> createStandings(int bots) {
+		List<Standing> standings = new ArrayList<Standing>();
+		for(int i = 0; i < bots; i++)
+			standings.add(new Standing(i, "bot" + i));
+		return standings;
+	}
+	
+	private static void play(Standing standing1, Standing standing2) {
+		standing1.addGame(standing2, true, null, new LatencyHistogram());
+		standing2.addGame(standing1, false, null, new LatencyHistogram());
+	}
+	
+	private static void assertPairing(List<Standing> ranking, List<Standing[]> pairings, int pairing, int bot1, int bot2) {
+		assertSame(ranking.get(bot1), pairings.get(pairing)[0]);
+		assertSame(ranking.get(bot2), pairings.get(pairing)[1]);
+	}
+	
+	private static void assertValidPairing(List<Standing> ranking, List<Standing[]> pairings) {
+		Set<Standing> paired = new HashSet<Standing>();
+		for(Standing[] pairing : pairings) {
+			assertTrue(paired.add(pairing[0]));
+			assertTrue(paired.add(pairing[1]));
+		}
+		assertEquals(new HashSet<Standing>(ranking), paired);
+	}
+	
+	private static int countRematches(List<Standing[]> pairings) {
+		int rematches = 0;
+		for(Standing[] pairing : pairings)
+			if(pairing[0].hasPlayed(pairing[1]))
+				rematches++;
+		return rematches;
+	}
+}